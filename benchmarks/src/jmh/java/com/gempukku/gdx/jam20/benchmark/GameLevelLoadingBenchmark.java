@@ -0,0 +1,59 @@
+package com.gempukku.gdx.jam20.benchmark;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.gempukku.gdx.jam20.level.BinaryLevelFormat;
+import com.gempukku.gdx.jam20.level.GameLevel;
+import com.gempukku.gdx.jam20.level.LevelGrid;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GameLevelLoadingBenchmark {
+    @Param({"40", "500", "2000"})
+    public int size;
+
+    private String levelData;
+    private FileHandle levelFile;
+    private FileHandle binaryLevelFile;
+
+    @Setup(Level.Trial)
+    public void createLevel() throws IOException {
+        levelData = SyntheticLevels.createLevelData(size, size, 0.1f, 0.01f, 0.5f, 0);
+
+        File file = File.createTempFile("benchmark", ".level");
+        file.deleteOnExit();
+        levelFile = new FileHandle(file);
+        levelFile.writeString(SyntheticLevels.createLevelFile("Benchmark", size, size, 0.1f, 0.01f, 0.5f, 0), false);
+
+        File binaryFile = File.createTempFile("benchmark", "." + BinaryLevelFormat.EXTENSION);
+        binaryFile.deleteOnExit();
+        binaryLevelFile = new FileHandle(binaryFile);
+        BinaryLevelFormat.write(GameLevel.loadGameLevel(levelFile), true, binaryLevelFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteLevel() {
+        levelFile.delete();
+        binaryLevelFile.delete();
+    }
+
+    @Benchmark
+    public GameLevel loadGameLevel() throws IOException {
+        return GameLevel.loadGameLevel(levelFile);
+    }
+
+    @Benchmark
+    public GameLevel loadBinaryGameLevel() throws IOException {
+        return GameLevel.loadGameLevel(binaryLevelFile);
+    }
+
+    @Benchmark
+    public LevelGrid createUnvalidatedLevelData() {
+        return GameLevel.createUnvalidatedLevelData(levelData);
+    }
+}
@@ -0,0 +1,49 @@
+package com.gempukku.gdx.jam20.benchmark;
+
+import com.gempukku.gdx.jam20.level.GameLevel;
+import com.gempukku.gdx.jam20.level.simulation.LevelSimulation;
+import com.gempukku.gdx.jam20.level.system.InputSystem;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the major tick of a level, the headless equivalent of <code>LevelSystem.update(true)</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LevelSimulationBenchmark {
+    @Param({"40", "500", "2000"})
+    public int size;
+    @Param({"0.05", "0.3"})
+    public float stoneDensity;
+    @Param({"0.0", "0.02"})
+    public float foxDensity;
+    @Param({"0.5"})
+    public float dirtDensity;
+
+    private GameLevel gameLevel;
+    private LevelSimulation simulation;
+    private int tick;
+
+    @Setup(Level.Trial)
+    public void createLevel() {
+        String levelData = SyntheticLevels.createLevelData(size, size, stoneDensity, foxDensity, dirtDensity, 0);
+        gameLevel = new GameLevel("Benchmark", 1, 3600, GameLevel.createUnvalidatedLevelData(levelData));
+        simulation = new LevelSimulation();
+    }
+
+    @Setup(Level.Iteration)
+    public void loadLevel() {
+        simulation.loadLevel(gameLevel);
+        tick = 0;
+    }
+
+    @Benchmark
+    public LevelSimulation majorTick() {
+        // Player is walled in, trying to move exercises the player phase without changing the level
+        simulation.tick((tick++ & 1) == 0 ? InputSystem.Direction.Left : InputSystem.Direction.Right);
+        return simulation;
+    }
+}
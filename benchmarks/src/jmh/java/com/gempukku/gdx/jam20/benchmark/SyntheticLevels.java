@@ -0,0 +1,46 @@
+package com.gempukku.gdx.jam20.benchmark;
+
+import java.util.Random;
+
+/**
+ * Generates random levels in the text level format. The player is walled in, so the level keeps running
+ * for as long as the benchmark needs it.
+ */
+public class SyntheticLevels {
+    public static String createLevelData(int width, int height, float stoneDensity, float foxDensity, float dirtDensity, long seed) {
+        Random random = new Random(seed);
+        int playerX = width / 2;
+        int playerY = height / 2;
+
+        StringBuilder result = new StringBuilder((width + 1) * height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int distanceX = Math.abs(x - playerX);
+                int distanceY = Math.abs(y - playerY);
+                if (x == playerX && y == playerY) {
+                    result.append('P');
+                } else if (distanceX <= 1 && distanceY <= 1) {
+                    result.append('W');
+                } else if (x == 0 && y == 0) {
+                    result.append('X');
+                } else {
+                    float value = random.nextFloat();
+                    if (value < stoneDensity)
+                        result.append('O');
+                    else if (value < stoneDensity + foxDensity)
+                        result.append('F');
+                    else if (value < stoneDensity + foxDensity + dirtDensity)
+                        result.append('D');
+                    else
+                        result.append(' ');
+                }
+            }
+            result.append('\n');
+        }
+        return result.toString();
+    }
+
+    public static String createLevelFile(String name, int width, int height, float stoneDensity, float foxDensity, float dirtDensity, long seed) {
+        return name + "\n1\n3600\n" + createLevelData(width, height, stoneDensity, foxDensity, dirtDensity, seed);
+    }
+}
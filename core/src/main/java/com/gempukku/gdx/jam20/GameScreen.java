@@ -4,9 +4,9 @@ import com.badlogic.gdx.Game;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
-import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.scenes.scene2d.Actor;
@@ -17,12 +17,22 @@ import com.badlogic.gdx.scenes.scene2d.ui.Table;
 import com.badlogic.gdx.scenes.scene2d.ui.TextButton;
 import com.badlogic.gdx.scenes.scene2d.utils.ChangeListener;
 import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.StringBuilder;
+import com.badlogic.gdx.utils.TimeUtils;
 import com.badlogic.gdx.utils.viewport.ScreenViewport;
 import com.gempukku.gdx.jam20.camera.AlignUnderflowCameraConstraint;
 import com.gempukku.gdx.jam20.level.GameLevel;
+import com.gempukku.gdx.jam20.level.replay.Replay;
+import com.gempukku.gdx.jam20.level.simulation.FinishReason;
 import com.gempukku.gdx.jam20.level.system.InputSystem;
+import com.gempukku.gdx.jam20.level.system.LevelHudText;
 import com.gempukku.gdx.jam20.level.system.LevelSystem;
 import com.gempukku.gdx.jam20.level.system.SoundSystem;
+import com.gempukku.gdx.jam20.level.system.StaticTileLayerActor;
+import com.gempukku.gdx.jam20.profiler.FrameProfiler;
+import com.gempukku.gdx.jam20.profiler.FrameSection;
+import com.gempukku.gdx.jam20.time.FixedStepScheduler;
+import com.gempukku.gdx.jam20.time.TickRateMeter;
 import com.gempukku.libgdx.graph.pipeline.PipelineLoader;
 import com.gempukku.libgdx.graph.pipeline.PipelineRenderer;
 import com.gempukku.libgdx.graph.pipeline.RenderOutputs;
@@ -36,11 +46,24 @@ import com.gempukku.libgdx.lib.camera2d.constraint.LerpToWindowCameraConstraint;
 import com.gempukku.libgdx.lib.camera2d.constraint.LockedToWindowCameraConstraint;
 import com.gempukku.libgdx.lib.camera2d.constraint.SceneCameraConstraint;
 
+import java.io.IOException;
+import java.io.OutputStream;
+
 public class GameScreen implements Screen {
     private static final float TILE_SIZE = 64f;
-    private static final float MAJOR_TICK = 0.20f;
-
-    private float lastMajorTick = -MAJOR_TICK;
+    // Ticks run in a single frame to catch up after a hitch at normal speed, the rest of the time is dropped
+    private static final int MAX_CATCH_UP_TICKS = 5;
+    // Speed multipliers selectable while playing, with the text displayed for them
+    private static final float[] SPEEDS = {0.25f, 0.5f, 1f, 2f, 4f, 8f};
+    private static final String[] SPEED_TEXTS = {"Speed x0.25", "Speed x0.5", "", "Speed x2", "Speed x4", "Speed x8"};
+    private static final int NORMAL_SPEED_INDEX = 2;
+    private static final float TICK_RATE_INTERVAL = 1f;
+    // Frames kept by the profiler, and the frame duration that is captured as a hitch
+    private static final int PROFILER_WINDOW = 600;
+    private static final float PROFILER_HITCH_THRESHOLD = 1 / 30f;
+    private static final int PROFILER_MAX_HITCHES = 16;
+    private static final int PROFILER_REPORTED_HITCHES = 5;
+    private static final float PROFILER_REPORT_INTERVAL = 0.5f;
 
     private PipelineRenderer pipelineRenderer;
     private TextureAtlas textureAtlas;
@@ -49,23 +72,38 @@ public class GameScreen implements Screen {
     private final Screen exitScreen;
     private final Skin skin;
 
+    private Stage tilesStage;
     private Stage mainStage;
     private Stage pauseStage;
     private Stage finishStage;
+    private Stage profilerStage;
 
     private OrthographicCamera camera;
     private DefaultTimeKeeper timeKeeper;
+    private FixedStepScheduler tickScheduler;
 
     private InputSystem inputSystem;
     private LevelSystem levelSystem;
     private FocusCameraController focusCameraController;
     private Label collectableCountLabel;
     private Label timeLabel;
+    private Label speedLabel;
+    private final LevelHudText hudText = new LevelHudText();
+    private final Vector2 spawnPosition = new Vector2();
+    private final Rectangle levelBounds = new Rectangle();
+
+    private final FrameProfiler profiler = new FrameProfiler(PROFILER_WINDOW, PROFILER_HITCH_THRESHOLD, PROFILER_MAX_HITCHES);
+    private Label profilerLabel;
+    private final StringBuilder profilerText = new StringBuilder();
+    private float profilerReportDelay;
+    private final TickRateMeter tickRateMeter = new TickRateMeter(TICK_RATE_INTERVAL);
+    private int speedIndex = NORMAL_SPEED_INDEX;
 
     private boolean paused;
     private boolean finished;
     private Label finishLabel;
     private TextButton retryButton;
+    private Replay lastReplay;
     private AssetManager assetManager;
     private SceneCameraConstraint sceneCameraConstraint;
     private AlignUnderflowCameraConstraint alignUnderflowCameraConstraint;
@@ -80,15 +118,19 @@ public class GameScreen implements Screen {
     }
 
     private void initialize() {
+        this.tilesStage = new Stage(new ScreenViewport());
         this.mainStage = new Stage(new ScreenViewport());
         this.pauseStage = new Stage(new ScreenViewport());
         this.finishStage = new Stage(new ScreenViewport());
+        this.profilerStage = new Stage(new ScreenViewport());
 
         initializeMainStage();
         initializePauseStage();
         initializeFinishStage();
+        initializeProfilerStage();
 
         timeKeeper = new DefaultTimeKeeper();
+        tickScheduler = new FixedStepScheduler(1f / GameLevel.DEFAULT_TICKS_PER_SECOND, MAX_CATCH_UP_TICKS);
 
         camera = new OrthographicCamera(Gdx.graphics.getWidth() / TILE_SIZE, Gdx.graphics.getHeight() / TILE_SIZE);
 
@@ -99,7 +141,8 @@ public class GameScreen implements Screen {
         alignUnderflowCameraConstraint = new AlignUnderflowCameraConstraint(new Rectangle(0, 0, 1, 1), Alignment.center);
 
         inputSystem = new InputSystem();
-        levelSystem = new LevelSystem(timeKeeper, inputSystem, soundSystem, pipelineRenderer);
+        levelSystem = new LevelSystem(tickScheduler, inputSystem, soundSystem, pipelineRenderer);
+        tilesStage.addActor(new StaticTileLayerActor(levelSystem.getStaticTileLayer(), camera));
         focusCameraController = new FocusCameraController(camera, levelSystem,
                 new LerpToWindowCameraConstraint(new Rectangle(0.45f, 0.45f, 0.1f, 0.1f), new Vector2(5f, 5f), new Vector2(10f, 10f)),
                 new LockedToWindowCameraConstraint(new Rectangle(0.35f, 0.4f, 0.3f, 0.2f)),
@@ -124,6 +167,16 @@ public class GameScreen implements Screen {
                 });
         table.add(retryButton).width(250).height(50).pad(10).row();
 
+        TextButton replayButton = new TextButton("Watch replay", skin, "menu");
+        replayButton.addListener(
+                new ChangeListener() {
+                    @Override
+                    public void changed(ChangeEvent event, Actor actor) {
+                        loadReplay(levelSystem.getGameLevel(), lastReplay);
+                    }
+                });
+        table.add(replayButton).width(250).height(50).pad(10).row();
+
         TextButton exit = new TextButton("Exit level", skin, "menu");
         exit.addListener(
                 new ChangeListener() {
@@ -174,90 +227,239 @@ public class GameScreen implements Screen {
         pauseStage.addActor(table);
     }
 
+    private void initializeProfilerStage() {
+        profilerLabel = new Label("", skin, "fixed");
+
+        Table table = new Table(skin);
+        table.setFillParent(true);
+        table.left().bottom();
+        table.add(profilerLabel).pad(10f).left();
+
+        profilerStage.addActor(table);
+    }
+
     private void initializeMainStage() {
         collectableCountLabel = new Label("", skin, "fixed");
         timeLabel = new Label("", skin, "fixed");
         timeLabel.setAlignment(Align.right);
+        speedLabel = new Label("", skin, "fixed");
+        speedLabel.setAlignment(Align.center);
 
         Table table = new Table(skin);
         table.setFillParent(true);
         table.left().top();
 
         table.add(collectableCountLabel).pad(10f).left().growX();
+        table.add(speedLabel).pad(10f).growX();
         table.add(timeLabel).pad(10f).right().growX();
         table.row();
 
         mainStage.addActor(table);
     }
 
+    /**
+     * Sets, if the simulation should run on its own thread, so that the cost of ticks does not affect the frame rate.
+     */
+    public void setThreadedSimulation(boolean threadedSimulation) {
+        levelSystem.setThreadedSimulation(threadedSimulation);
+    }
+
+    public boolean isThreadedSimulation() {
+        return levelSystem.isThreadedSimulation();
+    }
+
+    /**
+     * Sets, if the player should start moving as soon as a key is pressed, instead of waiting for the next tick.
+     */
+    public void setImmediateInput(boolean immediateInput) {
+        levelSystem.setImmediateInput(immediateInput);
+    }
+
+    public boolean isImmediateInput() {
+        return levelSystem.isImmediateInput();
+    }
+
+    /**
+     * Sets, if the ticks should run as fast as possible, instead of at the tick rate of the level. Useful for
+     * playtesting and for watching replays.
+     */
+    public void setTurbo(boolean turbo) {
+        levelSystem.setTurbo(turbo);
+        updateSpeedLabel();
+    }
+
+    public boolean isTurbo() {
+        return levelSystem.isTurbo();
+    }
+
+    private void setSpeedIndex(int speedIndex) {
+        this.speedIndex = speedIndex;
+        levelSystem.setSpeed(SPEEDS[speedIndex]);
+        updateSpeedLabel();
+    }
+
+    private void updateSpeedLabel() {
+        speedLabel.setText(levelSystem.isTurbo() ? "Turbo" : SPEED_TEXTS[speedIndex]);
+    }
+
     public void loadLevel(GameLevel gameLevel) {
+        startLevel(gameLevel, null);
+    }
+
+    public void loadReplay(GameLevel gameLevel, Replay replay) {
+        startLevel(gameLevel, replay);
+    }
+
+    private void startLevel(GameLevel gameLevel, Replay replay) {
         setFinished(null);
         setPaused(false);
 
-        camera.position.x = gameLevel.getSpawnPosition().x;
-        camera.position.y = gameLevel.getHeight() - gameLevel.getSpawnPosition().y;
+        gameLevel.getSpawnPosition(spawnPosition);
+        camera.position.x = spawnPosition.x;
+        camera.position.y = spawnPosition.y;
         camera.update(true);
 
-        lastMajorTick = -MAJOR_TICK;
+        tickScheduler.setTickRate(gameLevel.getTicksPerSecond());
+        tickScheduler.reset();
+        tickRateMeter.reset();
         timeKeeper.setTime(0f);
 
         if (levelSystem.getGameLevel() != null)
             levelSystem.unloadLevel();
 
-        levelSystem.loadLevel(gameLevel, textureAtlas);
-        sceneCameraConstraint.setBounds(new Rectangle(0f, 0f, gameLevel.getWidth(), gameLevel.getHeight()));
-        alignUnderflowCameraConstraint.setBounds(new Rectangle(0f, 0f, gameLevel.getWidth(), gameLevel.getHeight()));
+        if (replay != null)
+            levelSystem.loadReplay(gameLevel, textureAtlas, replay);
+        else
+            levelSystem.loadLevel(gameLevel, textureAtlas);
+        levelBounds.set(0f, 0f, gameLevel.getWidth(), gameLevel.getHeight());
+        sceneCameraConstraint.setBounds(levelBounds);
+        alignUnderflowCameraConstraint.setBounds(levelBounds);
+
+        hudText.reset();
     }
 
-    private String getTimeString(int time) {
-        int minutes = time / 60;
-        int seconds = time % 60;
-        return String.format("%03d:%02d", minutes, seconds);
+    private void updateHud() {
+        if (hudText.updateCollectables(levelSystem))
+            collectableCountLabel.setText(hudText.getCollectablesText());
+        if (hudText.updateRemainingTime(levelSystem))
+            timeLabel.setText(hudText.getRemainingTimeText());
     }
 
     @Override
     public void show() {
-
+        updateInputProcessor();
     }
 
     @Override
     public void render(float delta) {
+        profiler.startFrame();
+
+        long sectionStart = profiler.startSection();
         soundSystem.update(delta);
+        profiler.endSection(FrameSection.Sound, sectionStart);
 
         if (!finished) {
-            LevelSystem.FinishReason finishReason = levelSystem.getFinishReason();
+            FinishReason finishReason = levelSystem.getFinishReason();
             if (finishReason != null) {
                 setFinished(finishReason);
             }
         }
 
         if (!finished) {
-            inputSystem.update();
+            sectionStart = profiler.startSection();
+            levelSystem.updateInput();
+            profiler.endSection(FrameSection.Input, sectionStart);
 
             if (inputSystem.isPauseRequested()) {
                 setPaused(!paused);
             }
+            if (inputSystem.isProfilerToggleRequested()) {
+                setProfilerEnabled(!profiler.isEnabled());
+            }
+            if (inputSystem.isProfilerDumpRequested() && profiler.isEnabled()) {
+                saveProfilerSamples();
+            }
+            if (inputSystem.isSlowerRequested() && speedIndex > 0) {
+                setSpeedIndex(speedIndex - 1);
+            }
+            if (inputSystem.isFasterRequested() && speedIndex < SPEEDS.length - 1) {
+                setSpeedIndex(speedIndex + 1);
+            }
+            if (inputSystem.isTurboToggleRequested()) {
+                setTurbo(!isTurbo());
+            }
 
             if (!paused) {
                 timeKeeper.updateTime(delta);
 
-                boolean majorUpdate = false;
-                if (timeKeeper.getTime() >= lastMajorTick + MAJOR_TICK) {
-                    majorUpdate = true;
-                    lastMajorTick = timeKeeper.getTime();
-                }
+                // Turbo ticks are not scheduled, level system runs as many as fit into the frame
+                int tickCount = levelSystem.isTurbo() ? 0 : tickScheduler.advance(delta);
+                sectionStart = profiler.startSection();
+                levelSystem.update(tickCount);
+                profiler.endSection((tickCount > 0 || levelSystem.isTurbo()) ? FrameSection.Level_Major : FrameSection.Level_Minor, sectionStart);
 
-                levelSystem.update(majorUpdate);
-
-                collectableCountLabel.setText("Grubs: " + levelSystem.getCollectablesCollected() + "/" + levelSystem.getCollectablesRequired());
-                int remainingTime = levelSystem.getGameLevel().getMaximumLevelTime() - MathUtils.floor(timeKeeper.getTime());
-                timeLabel.setText("Time: " + getTimeString(remainingTime));
+                updateHud();
+                tickRateMeter.update(levelSystem.getTickCount(), delta);
             }
         }
 
+        sectionStart = profiler.startSection();
         focusCameraController.update(delta);
+        profiler.endSection(FrameSection.Camera, sectionStart);
+        levelSystem.updateVisibleArea(camera);
 
+        sectionStart = profiler.startSection();
         pipelineRenderer.render(RenderOutputs.drawToScreen);
+        profiler.endSection(FrameSection.Render, sectionStart);
+
+        profiler.endFrame(levelSystem.getTickCount(), levelSystem.getSpriteCount());
+        updateProfilerReport(delta);
+    }
+
+    private void setProfilerEnabled(boolean enabled) {
+        profiler.setEnabled(enabled);
+        profilerReportDelay = 0f;
+        pipelineRenderer.setPipelineProperty("Profiler", enabled);
+    }
+
+    private void updateProfilerReport(float delta) {
+        if (profiler.isEnabled()) {
+            profilerReportDelay -= delta;
+            if (profilerReportDelay <= 0f) {
+                profilerReportDelay = PROFILER_REPORT_INTERVAL;
+                profilerText.setLength(0);
+                profiler.appendReport(profilerText, PROFILER_REPORTED_HITCHES);
+                appendTickRate(profilerText);
+                profilerText.append("F3 - hide, F4 - save samples, F5/F6 - speed, F7 - turbo");
+                profilerLabel.setText(profilerText);
+            }
+        }
+    }
+
+    private void appendTickRate(StringBuilder text) {
+        text.append("Ticks/s: ");
+        appendTenths(text, tickRateMeter.getTickRate());
+        text.append(" target ");
+        if (levelSystem.isTurbo())
+            text.append("max");
+        else
+            appendTenths(text, levelSystem.getTargetTickRate());
+        text.append('\n');
+    }
+
+    private static void appendTenths(StringBuilder text, float value) {
+        int tenths = Math.round(value * 10f);
+        text.append(tenths / 10).append('.').append(tenths % 10);
+    }
+
+    private void saveProfilerSamples() {
+        FileHandle samplesFile = Gdx.files.local("profiler/frames-" + TimeUtils.millis() + ".csv");
+        try {
+            profiler.writeCsv(samplesFile);
+            Gdx.app.log("GameScreen", "Profiler samples saved to " + samplesFile.path());
+        } catch (IOException | RuntimeException exp) {
+            Gdx.app.error("GameScreen", "Unable to save the profiler samples", exp);
+        }
     }
 
     @Override
@@ -279,41 +481,73 @@ public class GameScreen implements Screen {
 
     @Override
     public void hide() {
-
+        Gdx.input.setInputProcessor(null);
     }
 
     @Override
     public void dispose() {
+        levelSystem.dispose();
         pipelineRenderer.dispose();
+        tilesStage.dispose();
         mainStage.dispose();
+        profilerStage.dispose();
         assetManager.dispose();
     }
 
     private void setPaused(boolean paused) {
         if (this.paused != paused) {
             this.paused = paused;
+            levelSystem.setPaused(paused);
 
             pipelineRenderer.setPipelineProperty("Blur", this.paused);
             pipelineRenderer.setPipelineProperty("Pause", this.paused);
 
-            Gdx.input.setInputProcessor(this.paused ? pauseStage : null);
+            updateInputProcessor();
         }
     }
 
-    private void setFinished(LevelSystem.FinishReason finishReason) {
+    private void setFinished(FinishReason finishReason) {
         boolean finished = finishReason != null;
         if (this.finished != finished) {
             this.finished = finished;
 
             if (this.finished) {
+                levelSystem.finishMovement();
                 finishLabel.setText(finishReason.getText());
-                retryButton.setVisible(finishReason.isRetry());
+                retryButton.setVisible(finishReason.isRetry() || levelSystem.isReplaying());
+
+                if (!levelSystem.isReplaying()) {
+                    lastReplay = levelSystem.getRecordedReplay();
+                    saveReplay(lastReplay);
+                }
             }
 
             pipelineRenderer.setPipelineProperty("Blur", this.finished);
             pipelineRenderer.setPipelineProperty("Finish", this.finished);
 
-            Gdx.input.setInputProcessor(this.finished ? finishStage : null);
+            updateInputProcessor();
+        }
+    }
+
+    private void updateInputProcessor() {
+        if (finished) {
+            Gdx.input.setInputProcessor(finishStage);
+        } else if (paused) {
+            Gdx.input.setInputProcessor(pauseStage);
+        } else {
+            // Keys released while the input went elsewhere would otherwise stay held
+            inputSystem.clearKeys();
+            Gdx.input.setInputProcessor(inputSystem);
+        }
+    }
+
+    private void saveReplay(Replay replay) {
+        // Last run is kept, so that it can be attached to a bug report
+        FileHandle replayFile = Gdx.files.local("replays/last." + Replay.EXTENSION);
+        try (OutputStream output = replayFile.write(false)) {
+            replay.write(output);
+        } catch (IOException | RuntimeException exp) {
+            Gdx.app.error("GameScreen", "Unable to save the replay", exp);
         }
     }
 
@@ -329,9 +563,11 @@ public class GameScreen implements Screen {
         pipelineRenderer.setPipelineProperty("Camera", camera);
 
         UIPluginPublicData uiPlugin = pipelineRenderer.getPluginData(UIPluginPublicData.class);
+        uiPlugin.setStage("Tiles-Stage", tilesStage);
         uiPlugin.setStage("Main-Stage", mainStage);
         uiPlugin.setStage("Pause-Stage", pauseStage);
         uiPlugin.setStage("Finish-Stage", finishStage);
+        uiPlugin.setStage("Profiler-Stage", profilerStage);
     }
 
     private void loadTextureAtlas() {
@@ -4,6 +4,7 @@ import com.badlogic.gdx.Game;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
@@ -16,7 +17,11 @@ import com.badlogic.gdx.utils.Align;
 import com.badlogic.gdx.utils.viewport.ScreenViewport;
 import com.badlogic.gdx.utils.viewport.Viewport;
 import com.gempukku.gdx.jam20.level.GameLevel;
-import com.gempukku.gdx.jam20.level.LevelObject;
+import com.gempukku.gdx.jam20.level.LevelCatalog;
+import com.gempukku.gdx.jam20.level.LevelGrid;
+import com.gempukku.gdx.jam20.level.LevelHeader;
+import com.gempukku.gdx.jam20.level.analysis.LevelAnalyzer;
+import com.gempukku.gdx.jam20.level.analysis.ReachabilityAnalysis;
 import com.gempukku.gdx.jam20.level.system.SoundSystem;
 
 import java.io.IOException;
@@ -26,18 +31,22 @@ import java.io.IOException;
  */
 public class MainScreen implements Screen {
     private static final String[] tutorials = new String[]{
-            "tutorial/level1.level",
-            "tutorial/level2.level",
-            "tutorial/level3.level",
-            "tutorial/level4.level",
-            "tutorial/level5.level",
-            "tutorial/level6.level"
+            "tutorial/level1.blevel",
+            "tutorial/level2.blevel",
+            "tutorial/level3.blevel",
+            "tutorial/level4.blevel",
+            "tutorial/level5.blevel",
+            "tutorial/level6.blevel"
     };
     private static final String[] campaign = new String[]{
-            "campaign/level1.level",
-            "campaign/level2.level"
+            "campaign/level1.blevel",
+            "campaign/level2.blevel"
     };
 
+    private LevelCatalog tutorialCatalog;
+    private LevelCatalog campaignCatalog;
+    private LevelAnalyzer levelAnalyzer;
+    private LevelGrid editorLevelData;
     private Skin skin;
     private Stage stage;
     private AssetManager assetManager;
@@ -47,6 +56,10 @@ public class MainScreen implements Screen {
     public MainScreen(Game game) {
         createSoundSystem();
 
+        tutorialCatalog = createLevelCatalog(tutorials);
+        campaignCatalog = createLevelCatalog(campaign);
+        levelAnalyzer = new LevelAnalyzer();
+
         skin = new Skin(Gdx.files.internal("skin/uiskin.json"));
         stage = new Stage(new ScreenViewport());
 
@@ -83,6 +96,13 @@ public class MainScreen implements Screen {
         stage.addActor(mainTable);
     }
 
+    private static LevelCatalog createLevelCatalog(String[] levels) {
+        FileHandle[] levelFiles = new FileHandle[levels.length];
+        for (int i = 0; i < levels.length; i++)
+            levelFiles[i] = Gdx.files.classpath(levels[i]);
+        return new LevelCatalog(levelFiles);
+    }
+
     private void createSettingsTable(Table mainTable, Table settingsTable) {
         TextButton backButton = new TextButton("Back", skin, "menu-warning");
         backButton.addListener(
@@ -143,6 +163,28 @@ public class MainScreen implements Screen {
                     }
                 });
         settingsTable.add(testFx).width(250).colspan(2).pad(10).height(50).row();
+
+        CheckBox threadedSimulation = new CheckBox(" Simulate on a separate thread", skin);
+        threadedSimulation.setChecked(gameScreen.isThreadedSimulation());
+        threadedSimulation.addListener(
+                new ChangeListener() {
+                    @Override
+                    public void changed(ChangeEvent event, Actor actor) {
+                        gameScreen.setThreadedSimulation(threadedSimulation.isChecked());
+                    }
+                });
+        settingsTable.add(threadedSimulation).colspan(2).pad(10).row();
+
+        CheckBox immediateInput = new CheckBox(" Move on key press", skin);
+        immediateInput.setChecked(gameScreen.isImmediateInput());
+        immediateInput.addListener(
+                new ChangeListener() {
+                    @Override
+                    public void changed(ChangeEvent event, Actor actor) {
+                        gameScreen.setImmediateInput(immediateInput.isChecked());
+                    }
+                });
+        settingsTable.add(immediateInput).colspan(2).pad(10).row();
     }
 
     private Label createLabel(String text) {
@@ -202,9 +244,8 @@ public class MainScreen implements Screen {
                     @Override
                     public void changed(ChangeEvent event, Actor actor) {
                         int numberOfCollectibles = Integer.parseInt(collectibleField.getText());
-                        LevelObject[][] levelData = GameLevel.createUnvalidatedLevelData(textArea.getText().toUpperCase());
 
-                        GameLevel gameLevel = new GameLevel("Test", numberOfCollectibles, 3600, levelData);
+                        GameLevel gameLevel = new GameLevel("Test", numberOfCollectibles, 3600, editorLevelData);
                         gameScreen.loadLevel(gameLevel);
                         game.setScreen(gameScreen);
                     }
@@ -213,22 +254,61 @@ public class MainScreen implements Screen {
         editorTable.add(testButton).width(200).colspan(2).right().pad(10).height(50).row();
 
         ChangeListener validationListener = new ChangeListener() {
+            private String analyzedText;
+            private ReachabilityAnalysis analysis;
+
             @Override
             public void changed(ChangeEvent event, Actor actor) {
+                enableButton(testButton, false);
+                int numberOfCollectibles;
                 try {
-                    int numberOfCollectibles = Integer.parseInt(collectibleField.getText());
-                    if (numberOfCollectibles < 1)
-                        throw new IllegalArgumentException("Number of grubs must be at least 1");
-                    GameLevel.createUnvalidatedLevelData(textArea.getText());
-                    validationLabel.setText("Level valid");
-                    enableButton(testButton, true);
+                    numberOfCollectibles = Integer.parseInt(collectibleField.getText());
                 } catch (NumberFormatException exp) {
+                    levelAnalyzer.cancel();
+                    analysis = null;
                     validationLabel.setText("Invalid number of grubs");
-                    enableButton(testButton, false);
-                } catch (Exception exp) {
-                    validationLabel.setText(exp.getMessage());
-                    enableButton(testButton, false);
+                    return;
                 }
+                if (numberOfCollectibles < 1) {
+                    levelAnalyzer.cancel();
+                    analysis = null;
+                    validationLabel.setText("Number of grubs must be at least 1");
+                    return;
+                }
+
+                String text = textArea.getText();
+                if (analysis != null && text.equals(analyzedText)) {
+                    showAnalysis(numberOfCollectibles);
+                    return;
+                }
+
+                analyzedText = text;
+                analysis = null;
+                validationLabel.setText("Validating...");
+                levelAnalyzer.analyze(text,
+                        new LevelAnalyzer.AnalysisListener() {
+                            @Override
+                            public void analysisFinished(ReachabilityAnalysis levelAnalysis) {
+                                analysis = levelAnalysis;
+                                showAnalysis(numberOfCollectibles);
+                            }
+
+                            @Override
+                            public void analysisFailed(String message) {
+                                validationLabel.setText(message);
+                            }
+                        });
+            }
+
+            private void showAnalysis(int numberOfCollectibles) {
+                String reachability = "reachable grubs " + analysis.getReachableGrubCount() + "/" + numberOfCollectibles
+                        + ", exit " + (analysis.isExitReachable() ? "reachable" : "not reachable");
+                if (analysis.getReachableGrubCount() >= numberOfCollectibles && analysis.isExitReachable())
+                    validationLabel.setText("Level valid (" + reachability + ")");
+                else
+                    validationLabel.setText("Level valid, but might not be solvable (" + reachability + ")");
+                editorLevelData = analysis.getLevelGrid();
+                enableButton(testButton, true);
             }
         };
 
@@ -256,76 +336,59 @@ public class MainScreen implements Screen {
         levelsTable.add(backButton).left().colspan(2).width(150).pad(10).height(50).row();
 
         levelsTable.add(new Label("Tutorials", skin, "menu")).colspan(2).height(50).row();
+        createCatalogTables(game, levelsTable, tutorialCatalog);
 
-        int levelNo = 1;
-        boolean left = true;
-        for (String level : tutorials) {
-            try {
-                GameLevel gameLevel = GameLevel.loadGameLevel(Gdx.files.classpath(level));
-
-                Table levelTable = new Table();
+        levelsTable.add(new Label("Campaign", skin, "menu")).colspan(2).height(50).row();
+        createCatalogTables(game, levelsTable, campaignCatalog);
+    }
 
-                TextButton levelButton = new TextButton("Level " + levelNo, skin, "menu");
-                levelButton.addListener(
-                        new ChangeListener() {
-                            @Override
-                            public void changed(ChangeEvent event, Actor actor) {
-                                gameScreen.loadLevel(gameLevel);
+    private void createCatalogTables(Game game, Table levelsTable, LevelCatalog levelCatalog) {
+        Label[] levelLabels = new Label[levelCatalog.getLevelCount()];
+        boolean left = true;
+        for (int i = 0; i < levelCatalog.getLevelCount(); i++) {
+            int index = i;
+            Table levelTable = new Table();
+
+            TextButton levelButton = new TextButton("Level " + (index + 1), skin, "menu");
+            levelButton.addListener(
+                    new ChangeListener() {
+                        @Override
+                        public void changed(ChangeEvent event, Actor actor) {
+                            try {
+                                gameScreen.loadLevel(levelCatalog.loadGameLevel(index));
                                 game.setScreen(gameScreen);
+                            } catch (IOException e) {
+                                e.printStackTrace();
                             }
-                        });
-                Label levelLabel = new Label(gameLevel.getName(), skin);
+                        }
+                    });
+            Label levelLabel = new Label("", skin);
+            levelLabels[index] = levelLabel;
 
-                levelTable.add(levelButton).width(250).height(50).pad(10).padBottom(0f).row();
-                levelTable.add(levelLabel).row();
+            levelTable.add(levelButton).width(250).height(50).pad(10).padBottom(0f).row();
+            levelTable.add(levelLabel).row();
 
-                levelsTable.add(levelTable);
-                if (!left)
-                    levelsTable.row();
+            levelsTable.add(levelTable);
+            if (!left)
+                levelsTable.row();
 
-                left = !left;
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-            levelNo++;
+            left = !left;
         }
         if (!left)
             levelsTable.row();
 
-        levelsTable.add(new Label("Campaign", skin, "menu")).colspan(2).height(50).row();
-
-        levelNo = 1;
-        left = true;
-        for (String level : campaign) {
-            try {
-                GameLevel gameLevel = GameLevel.loadGameLevel(Gdx.files.classpath(level));
-
-                Table levelTable = new Table();
-
-                TextButton levelButton = new TextButton("Level " + levelNo, skin, "menu");
-                levelButton.addListener(
-                        new ChangeListener() {
-                            @Override
-                            public void changed(ChangeEvent event, Actor actor) {
-                                gameScreen.loadLevel(gameLevel);
-                                game.setScreen(gameScreen);
-                            }
-                        });
-                Label levelLabel = new Label(gameLevel.getName(), skin);
-
-                levelTable.add(levelButton).width(250).height(50).pad(10).padBottom(0f).row();
-                levelTable.add(levelLabel).row();
-
-                levelsTable.add(levelTable);
-                if (!left)
-                    levelsTable.row();
+        levelCatalog.loadHeaders(
+                new LevelCatalog.HeaderListener() {
+                    @Override
+                    public void headerLoaded(int index, LevelHeader header) {
+                        levelLabels[index].setText(header.getName());
+                    }
 
-                left = !left;
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-            levelNo++;
-        }
+                    @Override
+                    public void headerFailed(int index, Exception exception) {
+                        exception.printStackTrace();
+                    }
+                });
     }
 
     private void createMainTable(TextureAtlas textureAtlas, Table mainTable, Table levelsTable, Table settingsTable, Table editorTable) {
@@ -424,6 +487,9 @@ public class MainScreen implements Screen {
 
     @Override
     public void dispose() {
+        tutorialCatalog.dispose();
+        campaignCatalog.dispose();
+        levelAnalyzer.dispose();
         soundSystem.dispose();
         gameScreen.dispose();
         skin.dispose();
@@ -9,6 +9,10 @@ import com.gempukku.libgdx.lib.camera2d.constraint.CameraConstraint;
 public class AlignUnderflowCameraConstraint implements CameraConstraint {
     private Rectangle bounds;
     private Alignment alignment;
+    // Offset of the aligned viewport is only recalculated, when the viewport or bounds change
+    private final Vector2 alignedOffset = new Vector2();
+    private float alignedViewportWidth = -1;
+    private float alignedViewportHeight = -1;
 
     public AlignUnderflowCameraConstraint(Rectangle bounds, Alignment alignment) {
         this.bounds = bounds;
@@ -17,10 +21,12 @@ public class AlignUnderflowCameraConstraint implements CameraConstraint {
 
     public void setBounds(Rectangle bounds) {
         this.bounds.set(bounds);
+        alignedViewportWidth = -1;
     }
 
     public void setAlignment(Alignment alignment) {
         this.alignment = alignment;
+        alignedViewportWidth = -1;
     }
 
     @Override
@@ -28,12 +34,22 @@ public class AlignUnderflowCameraConstraint implements CameraConstraint {
         float previousX = camera.position.x;
         float previousY = camera.position.y;
 
+        if (camera.viewportWidth > bounds.width || camera.viewportHeight > bounds.height)
+            updateAlignedOffset(camera.viewportWidth, camera.viewportHeight);
         if (camera.viewportWidth > bounds.width)
-            camera.position.x = bounds.x + alignment.apply(camera.viewportWidth, camera.viewportHeight, bounds.width, bounds.height).x + camera.viewportWidth / 2;
+            camera.position.x = bounds.x + alignedOffset.x + camera.viewportWidth / 2;
         if (camera.viewportHeight > bounds.height)
-            camera.position.y = bounds.y + alignment.apply(camera.viewportWidth, camera.viewportHeight, bounds.width, bounds.height).y + camera.viewportHeight / 2;
+            camera.position.y = bounds.y + alignedOffset.y + camera.viewportHeight / 2;
 
         if (camera.position.x != previousX || camera.position.y != previousY)
             camera.update();
     }
+
+    private void updateAlignedOffset(float viewportWidth, float viewportHeight) {
+        if (viewportWidth != alignedViewportWidth || viewportHeight != alignedViewportHeight) {
+            alignedOffset.set(alignment.apply(viewportWidth, viewportHeight, bounds.width, bounds.height));
+            alignedViewportWidth = viewportWidth;
+            alignedViewportHeight = viewportHeight;
+        }
+    }
 }
@@ -0,0 +1,221 @@
+package com.gempukku.gdx.jam20.level;
+
+import com.badlogic.gdx.files.FileHandle;
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * Compact binary level format, loaded with a single read of the file.
+ * <p>
+ * File layout (big-endian): magic, version, flags, name (modified UTF-8), required collectables, maximum level time,
+ * tick rate, grid width, grid height, length of cell data, cell data. Files of version 1 have no tick rate, the levels
+ * use the default one. The grid includes the wall border, cells are stored in the
+ * same order as in {@link LevelGrid}.
+ * <p>
+ * Cell data is either packed, two cells per byte with the first cell in the high 4 bits, or run-length encoded. Each
+ * run starts with a byte with the cell code in the high 4 bits and the run length minus one in the low 4 bits. Value
+ * of 15 in the low 4 bits means the run is 16 cells plus the following variable length number.
+ */
+public class BinaryLevelFormat {
+    public static final String EXTENSION = "blevel";
+
+    private static final int MAGIC = 0x474C564C;
+    private static final int VERSION = 2;
+    private static final int VERSION_WITHOUT_TICK_RATE = 1;
+    private static final int FLAG_RUN_LENGTH_ENCODED = 1;
+    private static final int MAX_SHORT_RUN = 15;
+    private static final int CODE_COUNT = LevelObject.values().length;
+
+    public static GameLevel loadGameLevel(FileHandle fileHandle) throws IOException {
+        return readGameLevel(fileHandle.readBytes());
+    }
+
+    /**
+     * Reads only the header of the level, without reading the cell data.
+     */
+    public static LevelHeader loadLevelHeader(FileHandle fileHandle) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(fileHandle.read(), 512))) {
+            return readHeader(input);
+        }
+    }
+
+    public static GameLevel readGameLevel(byte[] data) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(data));
+        BinaryLevelHeader header = readHeader(input);
+        int flags = header.flags;
+        int dataLength = input.readInt();
+
+        int dataStart = data.length - input.available();
+        if (dataStart + dataLength > data.length)
+            throw new IOException("Truncated binary level file");
+
+        int width = header.getWidth();
+        int height = header.getHeight();
+        byte[] cells = new byte[width * height];
+        if ((flags & FLAG_RUN_LENGTH_ENCODED) != 0)
+            decodeRuns(data, dataStart, dataStart + dataLength, cells);
+        else
+            unpack(data, dataStart, dataStart + dataLength, cells);
+
+        return new GameLevel(header.getName(), header.getRequiredCollectables(), header.getMaximumLevelTime(),
+                header.getTicksPerSecond(), new LevelGrid(width, height, cells));
+    }
+
+    private static BinaryLevelHeader readHeader(DataInputStream input) throws IOException {
+        if (input.readInt() != MAGIC)
+            throw new IOException("Not a binary level file");
+        int version = input.readUnsignedByte();
+        if (version != VERSION && version != VERSION_WITHOUT_TICK_RATE)
+            throw new IOException("Unsupported binary level version: " + version);
+        int flags = input.readUnsignedByte();
+        String name = input.readUTF();
+        int requiredCollectables = input.readInt();
+        int maximumLevelTime = input.readInt();
+        int ticksPerSecond = (version != VERSION_WITHOUT_TICK_RATE) ? input.readInt() : GameLevel.DEFAULT_TICKS_PER_SECOND;
+        if (ticksPerSecond <= 0)
+            throw new IOException("Invalid tick rate: " + ticksPerSecond);
+        int width = input.readInt();
+        int height = input.readInt();
+        return new BinaryLevelHeader(name, requiredCollectables, maximumLevelTime, ticksPerSecond, width, height, flags);
+    }
+
+    /**
+     * Writes the level, run-length encoding is only used if requested and it makes the cell data smaller.
+     */
+    public static void write(GameLevel gameLevel, boolean runLengthEncoded, OutputStream outputStream) throws IOException {
+        byte[] cells = gameLevel.getLevelData().getCells();
+        byte[] cellData = pack(cells);
+        if (runLengthEncoded) {
+            // Levels without large uniform areas get bigger and slower to load with run-length encoding
+            byte[] runs = encodeRuns(cells);
+            if (runs.length < cellData.length)
+                cellData = runs;
+            else
+                runLengthEncoded = false;
+        }
+
+        DataOutputStream output = new DataOutputStream(outputStream);
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+        output.writeByte(runLengthEncoded ? FLAG_RUN_LENGTH_ENCODED : 0);
+        output.writeUTF(gameLevel.getName());
+        output.writeInt(gameLevel.getRequiredCollectables());
+        output.writeInt(gameLevel.getMaximumLevelTime());
+        output.writeInt(gameLevel.getTicksPerSecond());
+        output.writeInt(gameLevel.getWidth());
+        output.writeInt(gameLevel.getHeight());
+        output.writeInt(cellData.length);
+        output.write(cellData);
+        output.flush();
+    }
+
+    public static void write(GameLevel gameLevel, boolean runLengthEncoded, FileHandle fileHandle) throws IOException {
+        try (OutputStream output = fileHandle.write(false, 65536)) {
+            write(gameLevel, runLengthEncoded, output);
+        }
+    }
+
+    private static byte[] pack(byte[] cells) {
+        byte[] result = new byte[(cells.length + 1) / 2];
+        for (int i = 0; i < cells.length; i += 2) {
+            int low = (i + 1 < cells.length) ? cells[i + 1] : 0;
+            result[i / 2] = (byte) ((cells[i] << 4) | low);
+        }
+        return result;
+    }
+
+    private static void unpack(byte[] data, int start, int end, byte[] cells) throws IOException {
+        if (end - start != (cells.length + 1) / 2)
+            throw new IOException("Invalid length of cell data");
+        for (int i = 0; i < cells.length; i += 2) {
+            int value = data[start + i / 2];
+            cells[i] = validateCode((value >> 4) & 0xF);
+            if (i + 1 < cells.length)
+                cells[i + 1] = validateCode(value & 0xF);
+        }
+    }
+
+    private static byte[] encodeRuns(byte[] cells) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int index = 0;
+        while (index < cells.length) {
+            byte code = cells[index];
+            int runEnd = index + 1;
+            while (runEnd < cells.length && cells[runEnd] == code)
+                runEnd++;
+
+            int length = runEnd - index;
+            if (length <= MAX_SHORT_RUN) {
+                output.write((code << 4) | (length - 1));
+            } else {
+                output.write((code << 4) | MAX_SHORT_RUN);
+                writeVariableLength(output, length - MAX_SHORT_RUN - 1);
+            }
+            index = runEnd;
+        }
+        return output.toByteArray();
+    }
+
+    private static void decodeRuns(byte[] data, int start, int end, byte[] cells) throws IOException {
+        int position = start;
+        int index = 0;
+        while (index < cells.length) {
+            if (position >= end)
+                throw new IOException("Truncated cell data");
+            int value = data[position++] & 0xFF;
+            if (value >= CODE_COUNT << 4)
+                throw new IOException("Unknown type of object: " + (value >> 4));
+            byte code = (byte) (value >> 4);
+            int length = (value & 0xF) + 1;
+            if (length > MAX_SHORT_RUN) {
+                int extra = 0;
+                int shift = 0;
+                int part;
+                do {
+                    if (position >= end)
+                        throw new IOException("Truncated cell data");
+                    part = data[position++] & 0xFF;
+                    extra |= (part & 0x7F) << shift;
+                    shift += 7;
+                } while ((part & 0x80) != 0);
+                length = MAX_SHORT_RUN + 1 + extra;
+            }
+            int runEnd = index + length;
+            if (runEnd > cells.length)
+                throw new IOException("Cell data exceeds level size");
+            if (length > MAX_SHORT_RUN) {
+                if (code != 0)
+                    Arrays.fill(cells, index, runEnd, code);
+            } else {
+                while (index < runEnd)
+                    cells[index++] = code;
+            }
+            index = runEnd;
+        }
+    }
+
+    private static void writeVariableLength(ByteArrayOutputStream output, int value) {
+        while ((value & ~0x7F) != 0) {
+            output.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.write(value);
+    }
+
+    private static byte validateCode(int code) throws IOException {
+        if (code >= CODE_COUNT)
+            throw new IOException("Unknown type of object: " + code);
+        return (byte) code;
+    }
+
+    private static class BinaryLevelHeader extends LevelHeader {
+        private final int flags;
+
+        private BinaryLevelHeader(String name, int requiredCollectables, int maximumLevelTime, int ticksPerSecond,
+                                  int width, int height, int flags) {
+            super(name, requiredCollectables, maximumLevelTime, ticksPerSecond, width, height);
+            this.flags = flags;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.gempukku.gdx.jam20.level;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Level stored on disk as square chunks of cells, one byte per cell. The file is memory-mapped, so a chunk is only
+ * paged in from disk when its cells are accessed.
+ * <p>
+ * File layout (big-endian): magic, version, chunk size, grid width, grid height, required collectables, maximum level
+ * time, tick rate, name (modified UTF-8), followed by the chunks. Files of version 1 have no tick rate, the levels use
+ * the default one. Chunks are stored row by row starting from the bottom-left one,
+ * cells in a chunk are stored the same way as in {@link LevelGrid}. Chunks on the right and top edge are padded
+ * to the full chunk size.
+ * <p>
+ * Chunked levels are loaded from files with the chunked level extension, that have to be on the file system, so that
+ * they can be mapped.
+ */
+public class ChunkedLevelFile implements Closeable {
+    public static final String EXTENSION = "clevel";
+    public static final int DEFAULT_CHUNK_SIZE = 64;
+
+    private static final int MAGIC = 0x474C4348;
+    private static final int VERSION = 2;
+    private static final int VERSION_WITHOUT_TICK_RATE = 1;
+    private static final int CODE_COUNT = LevelObject.values().length;
+
+    private final RandomAccessFile file;
+    private final String name;
+    private final int requiredCollectables;
+    private final int maximumLevelTime;
+    private final int ticksPerSecond;
+    private final int width;
+    private final int height;
+    private final int chunkSize;
+    private final int chunksX;
+    private final int chunksY;
+    private final MappedByteBuffer chunkData;
+
+    private ChunkedLevelFile(RandomAccessFile file) throws IOException {
+        this.file = file;
+        ChunkedLevelHeader header = readHeader(file);
+        name = header.getName();
+        requiredCollectables = header.getRequiredCollectables();
+        maximumLevelTime = header.getMaximumLevelTime();
+        ticksPerSecond = header.getTicksPerSecond();
+        width = header.getWidth();
+        height = header.getHeight();
+        chunkSize = header.chunkSize;
+
+        chunksX = getChunkCount(width, chunkSize);
+        chunksY = getChunkCount(height, chunkSize);
+        long dataLength = (long) chunksX * chunksY * chunkSize * chunkSize;
+        if (dataLength > Integer.MAX_VALUE)
+            throw new IOException("Level is too big to be mapped");
+        chunkData = file.getChannel().map(FileChannel.MapMode.READ_ONLY, file.getFilePointer(), dataLength);
+    }
+
+    public static ChunkedLevelFile open(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            return new ChunkedLevelFile(randomAccessFile);
+        } catch (IOException exp) {
+            randomAccessFile.close();
+            throw exp;
+        }
+    }
+
+    /**
+     * Reads only the header of the level, without mapping the chunks.
+     */
+    public static LevelHeader loadLevelHeader(File file) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 512))) {
+            return readHeader(input);
+        }
+    }
+
+    /**
+     * Loads the whole level from the file, the file is closed afterwards.
+     */
+    public static GameLevel loadGameLevel(File file) throws IOException {
+        try (ChunkedLevelFile chunkedLevelFile = open(file)) {
+            return chunkedLevelFile.loadGameLevel();
+        }
+    }
+
+    private static ChunkedLevelHeader readHeader(DataInput input) throws IOException {
+        if (input.readInt() != MAGIC)
+            throw new IOException("Not a chunked level file");
+        int version = input.readInt();
+        if (version != VERSION && version != VERSION_WITHOUT_TICK_RATE)
+            throw new IOException("Unsupported chunked level file version: " + version);
+        int chunkSize = input.readInt();
+        if (chunkSize <= 0)
+            throw new IOException("Invalid chunk size: " + chunkSize);
+        int width = input.readInt();
+        int height = input.readInt();
+        if (width <= 0 || height <= 0)
+            throw new IOException("Invalid level size: " + width + "x" + height);
+        int requiredCollectables = input.readInt();
+        int maximumLevelTime = input.readInt();
+        int ticksPerSecond = (version != VERSION_WITHOUT_TICK_RATE) ? input.readInt() : GameLevel.DEFAULT_TICKS_PER_SECOND;
+        if (ticksPerSecond <= 0)
+            throw new IOException("Invalid tick rate: " + ticksPerSecond);
+        String name = input.readUTF();
+        return new ChunkedLevelHeader(name, requiredCollectables, maximumLevelTime, ticksPerSecond, width, height, chunkSize);
+    }
+
+    public static void write(GameLevel gameLevel, int chunkSize, File file) throws IOException {
+        LevelGrid levelGrid = gameLevel.getLevelData();
+        int width = levelGrid.getWidth();
+        int height = levelGrid.getHeight();
+        byte[] cells = levelGrid.getCells();
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(chunkSize);
+            output.writeInt(width);
+            output.writeInt(height);
+            output.writeInt(gameLevel.getRequiredCollectables());
+            output.writeInt(gameLevel.getMaximumLevelTime());
+            output.writeInt(gameLevel.getTicksPerSecond());
+            output.writeUTF(gameLevel.getName());
+
+            byte[] padding = new byte[chunkSize];
+            for (int chunkY = 0; chunkY < getChunkCount(height, chunkSize); chunkY++) {
+                for (int chunkX = 0; chunkX < getChunkCount(width, chunkSize); chunkX++) {
+                    int startX = chunkX * chunkSize;
+                    int rowLength = Math.min(chunkSize, width - startX);
+                    for (int y = chunkY * chunkSize; y < (chunkY + 1) * chunkSize; y++) {
+                        if (y < height) {
+                            output.write(cells, y * width + startX, rowLength);
+                            output.write(padding, 0, chunkSize - rowLength);
+                        } else {
+                            output.write(padding);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static int getChunkCount(int size, int chunkSize) {
+        return (size + chunkSize - 1) / chunkSize;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getRequiredCollectables() {
+        return requiredCollectables;
+    }
+
+    public int getMaximumLevelTime() {
+        return maximumLevelTime;
+    }
+
+    public int getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public int getChunksX() {
+        return chunksX;
+    }
+
+    public int getChunksY() {
+        return chunksY;
+    }
+
+    /**
+     * Returns read-only view of the cells of a chunk.
+     */
+    public ByteBuffer getChunk(int chunkX, int chunkY) {
+        ByteBuffer chunk = chunkData.duplicate();
+        int start = getChunkOffset(chunkX, chunkY);
+        chunk.position(start);
+        chunk.limit(start + chunkSize * chunkSize);
+        return chunk.slice();
+    }
+
+    public byte getCell(int x, int y) {
+        return chunkData.get(getChunkOffset(x / chunkSize, y / chunkSize) + (y % chunkSize) * chunkSize + x % chunkSize);
+    }
+
+    /**
+     * Returns the object in the cell.
+     *
+     * @throws IllegalStateException if the cell holds an unknown type of object
+     */
+    public LevelObject getLevelObject(int x, int y) {
+        byte code = getCell(x, y);
+        if (!isValidCode(code))
+            throw new IllegalStateException("Unknown type of object: " + code);
+        return LevelObject.fromCode(code);
+    }
+
+    /**
+     * Copies all the chunks into a level, peak memory use is the size of the level grid.
+     *
+     * @throws IOException if a cell of the level holds an unknown type of object
+     */
+    public GameLevel loadGameLevel() throws IOException {
+        byte[] cells = new byte[width * height];
+        ByteBuffer data = chunkData.duplicate();
+        for (int chunkY = 0; chunkY < chunksY; chunkY++) {
+            for (int chunkX = 0; chunkX < chunksX; chunkX++) {
+                int startX = chunkX * chunkSize;
+                int rowLength = Math.min(chunkSize, width - startX);
+                int chunkOffset = getChunkOffset(chunkX, chunkY);
+                for (int row = 0; row < chunkSize; row++) {
+                    int y = chunkY * chunkSize + row;
+                    if (y >= height)
+                        break;
+                    data.position(chunkOffset + row * chunkSize);
+                    int rowStart = y * width + startX;
+                    data.get(cells, rowStart, rowLength);
+                    for (int i = rowStart; i < rowStart + rowLength; i++) {
+                        if (!isValidCode(cells[i]))
+                            throw new IOException("Unknown type of object: " + cells[i]);
+                    }
+                }
+            }
+        }
+        return new GameLevel(name, requiredCollectables, maximumLevelTime, ticksPerSecond, new LevelGrid(width, height, cells));
+    }
+
+    private static boolean isValidCode(byte code) {
+        return code >= 0 && code < CODE_COUNT;
+    }
+
+    private int getChunkOffset(int chunkX, int chunkY) {
+        return (chunkY * chunksX + chunkX) * chunkSize * chunkSize;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private static class ChunkedLevelHeader extends LevelHeader {
+        private final int chunkSize;
+
+        private ChunkedLevelHeader(String name, int requiredCollectables, int maximumLevelTime, int ticksPerSecond,
+                                   int width, int height, int chunkSize) {
+            super(name, requiredCollectables, maximumLevelTime, ticksPerSecond, width, height);
+            this.chunkSize = chunkSize;
+        }
+    }
+}
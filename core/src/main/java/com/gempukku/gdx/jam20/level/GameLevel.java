@@ -3,58 +3,75 @@ package com.gempukku.gdx.jam20.level;
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Array;
+import com.gempukku.gdx.jam20.profiler.GameEventRecorder;
+import com.gempukku.gdx.jam20.profiler.GameEvents;
 
-import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
 
 public class GameLevel {
+    public static final int DEFAULT_TICKS_PER_SECOND = 5;
+
+    private static final byte[] CELL_CODES = new byte[128];
+    // Header of a text level is a few short lines, it is read in small blocks
+    private static final int TEXT_HEADER_BUFFER_SIZE = 512;
+
+    static {
+        Arrays.fill(CELL_CODES, (byte) -1);
+        for (char c = 0; c < CELL_CODES.length; c++) {
+            LevelObject levelObject = getLevelObject(c);
+            if (levelObject != null)
+                CELL_CODES[c] = levelObject.getCode();
+        }
+    }
+
     private final String name;
     private final int width;
     private final int height;
     private final int requiredCollectables;
     private final int maximumLevelTime;
-    private final LevelObject[][] levelData;
+    private final int ticksPerSecond;
+    private final LevelGrid levelData;
+    // Position of the player, found when it is first needed
+    private boolean spawnPositionFound;
+    private int spawnX = -1;
+    private int spawnY = -1;
 
-    public GameLevel(String name, int requiredCollectables, int maximumLevelTime, LevelObject[][] levelData) {
+    public GameLevel(String name, int requiredCollectables, int maximumLevelTime, LevelGrid levelData) {
+        this(name, requiredCollectables, maximumLevelTime, DEFAULT_TICKS_PER_SECOND, levelData);
+    }
+
+    public GameLevel(String name, int requiredCollectables, int maximumLevelTime, int ticksPerSecond, LevelGrid levelData) {
+        if (ticksPerSecond <= 0)
+            throw new IllegalArgumentException("Tick rate has to be positive: " + ticksPerSecond);
         this.name = name;
         this.requiredCollectables = requiredCollectables;
         this.maximumLevelTime = maximumLevelTime;
+        this.ticksPerSecond = ticksPerSecond;
         this.levelData = levelData;
-        this.width = levelData[0].length;
-        this.height = levelData.length;
+        this.width = levelData.getWidth();
+        this.height = levelData.getHeight();
     }
 
-    public static LevelObject[][] createUnvalidatedLevelData(String text) {
-        Array<Array<LevelObject>> result = new Array<>();
+    public static LevelGrid createUnvalidatedLevelData(String text) {
+        Array<byte[]> result = new Array<>();
         for (String line : text.split("\n")) {
-            if (line.length() != 0) {
-                char[] chars = line.toCharArray();
-                Array<LevelObject> row = new Array<>();
-                for (char ch : chars) {
-                    row.add(getLevelObject(ch));
-                }
-                result.add(row);
-            }
+            if (line.length() != 0)
+                result.add(parseRow(line));
         }
         if (result.size == 0)
             throw new IllegalArgumentException("No level data");
 
-        int width = result.get(0).size;
-        for (Array<LevelObject> levelObjects : result) {
-            if (levelObjects.size != width)
-                throw new IllegalArgumentException("Level data has to be in a rectangle shape");
-        }
+        LevelGrid levelGrid = createLevelLayout(result);
 
         int playerCount = 0;
         int exitCount = 0;
-        for (Array<LevelObject> levelObjects : result) {
-            for (LevelObject levelObject : levelObjects) {
-                if (levelObject == LevelObject.Player)
-                    playerCount++;
-                if (levelObject == LevelObject.Exit_Inactive)
-                    exitCount++;
-            }
+        for (byte cell : levelGrid.getCells()) {
+            if (cell == LevelObject.Player.getCode())
+                playerCount++;
+            if (cell == LevelObject.Exit_Inactive.getCode())
+                exitCount++;
         }
 
         if (playerCount != 1)
@@ -62,28 +79,40 @@ public class GameLevel {
         if (exitCount <= 0)
             throw new IllegalArgumentException("Level must have at least one exit");
 
-        return createLevelLayout(result);
+        return levelGrid;
     }
 
-    private static LevelObject[][] createLevelLayout(Array<Array<LevelObject>> result) {
-        int width = result.get(0).size;
+    private static byte[] parseRow(String line) {
+        byte[] row = new byte[line.length()];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = getCellCode(line.charAt(i));
+        }
+        return row;
+    }
 
-        LevelObject[][] levelLayout = new LevelObject[result.size + 2][];
+    private static LevelGrid createLevelLayout(Array<byte[]> result) {
+        int width = result.get(0).length;
+        for (byte[] row : result) {
+            if (row.length != width)
+                throw new IllegalArgumentException("Level data has to be in a rectangle shape");
+        }
 
-        LevelObject[] wallRow = new LevelObject[width + 2];
-        Arrays.fill(wallRow, LevelObject.Wall);
+        int layoutWidth = width + 2;
+        int layoutHeight = result.size + 2;
+        byte[] cells = new byte[layoutWidth * layoutHeight];
+        byte wall = LevelObject.Wall.getCode();
 
-        levelLayout[0] = wallRow;
+        Arrays.fill(cells, 0, layoutWidth, wall);
         for (int i = 0; i < result.size; i++) {
-            levelLayout[i + 1] = new LevelObject[width + 2];
-            levelLayout[i + 1][0] = LevelObject.Wall;
-            LevelObject[] fromData = result.get(i).toArray(LevelObject.class);
-            System.arraycopy(fromData, 0, levelLayout[i + 1], 1, fromData.length);
-            levelLayout[i + 1][width + 1] = LevelObject.Wall;
+            // First row of the data is the top of the level
+            int rowStart = (layoutHeight - i - 2) * layoutWidth;
+            cells[rowStart] = wall;
+            System.arraycopy(result.get(i), 0, cells, rowStart + 1, width);
+            cells[rowStart + width + 1] = wall;
         }
-        levelLayout[result.size + 1] = wallRow;
+        Arrays.fill(cells, (layoutHeight - 1) * layoutWidth, layoutHeight * layoutWidth, wall);
 
-        return levelLayout;
+        return new LevelGrid(layoutWidth, layoutHeight, cells);
     }
 
     public String getName() {
@@ -98,7 +127,14 @@ public class GameLevel {
         return maximumLevelTime;
     }
 
-    public LevelObject[][] getLevelData() {
+    /**
+     * Returns the number of ticks of the level per second of the level time.
+     */
+    public int getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    public LevelGrid getLevelData() {
         return levelData;
     }
 
@@ -110,38 +146,141 @@ public class GameLevel {
         return height;
     }
 
-    public Vector2 getSpawnPosition() {
-        for (int x = 0; x < width; x++) {
+    /**
+     * Sets the position of the player into the vector.
+     *
+     * @return the vector, or null if the level has no player
+     */
+    public Vector2 getSpawnPosition(Vector2 spawnPosition) {
+        if (!spawnPositionFound)
+            findSpawnPosition();
+        if (spawnX < 0)
+            return null;
+        return spawnPosition.set(spawnX, spawnY);
+    }
+
+    private void findSpawnPosition() {
+        byte player = LevelObject.Player.getCode();
+        for (int x = 0; x < width && spawnX < 0; x++) {
             for (int y = 0; y < height; y++) {
-                if (levelData[y][x] == LevelObject.Player)
-                    return new Vector2(x, y);
+                if (levelData.getCell(x, y) == player) {
+                    spawnX = x;
+                    spawnY = y;
+                    break;
+                }
             }
         }
-        return null;
+        spawnPositionFound = true;
+    }
+
+    /**
+     * Loads metadata of a level, only the header of the file is read. Size of levels in the text format is not known
+     * from their header.
+     */
+    public static LevelHeader loadLevelHeader(FileHandle fileHandle) throws IOException {
+        if (BinaryLevelFormat.EXTENSION.equals(fileHandle.extension()))
+            return BinaryLevelFormat.loadLevelHeader(fileHandle);
+        if (ChunkedLevelFile.EXTENSION.equals(fileHandle.extension()))
+            return ChunkedLevelFile.loadLevelHeader(fileHandle.file());
+
+        try (InputStream input = fileHandle.read()) {
+            return readTextHeader(new LevelTextReader(input, TEXT_HEADER_BUFFER_SIZE));
+        }
     }
 
+    private static LevelHeader readTextHeader(LevelTextReader reader) throws IOException {
+        String name = reader.readLine();
+        int collectableCount = Integer.parseInt(reader.readLine());
+        int maximumTime = Integer.parseInt(reader.readLine());
+        // Tick rate is optional, digits are not cell codes, so it can't be mistaken for the first row
+        int ticksPerSecond = reader.isNextLineNumber() ? Integer.parseInt(reader.readLine()) : DEFAULT_TICKS_PER_SECOND;
+        return new LevelHeader(name, collectableCount, maximumTime, ticksPerSecond, LevelHeader.UNKNOWN_SIZE, LevelHeader.UNKNOWN_SIZE);
+    }
+
+    /**
+     * Loads a level either in the text format, or in the binary or chunked format, if the file has the extension
+     * of the format.
+     * <p>
+     * Text format starts with lines with the name, the required collectables and the maximum level time, optionally
+     * followed by a line with the tick rate, followed by the rows of cells, top row first.
+     */
     public static GameLevel loadGameLevel(FileHandle fileHandle) throws IOException {
-        try (BufferedReader reader = fileHandle.reader(1024)) {
-            String name = reader.readLine();
-            int collectableCount = Integer.parseInt(reader.readLine());
-            int maximumTime = Integer.parseInt(reader.readLine());
-            Array<Array<LevelObject>> result = new Array<>();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                char[] chars = line.toCharArray();
-                Array<LevelObject> row = new Array<>();
-                for (char ch : chars) {
-                    row.add(getLevelObject(ch));
-                }
-                result.add(row);
+        GameEventRecorder eventRecorder = GameEvents.getRecorder();
+        GameEventRecorder.Span span = eventRecorder.beginLevelFileLoad();
+        GameLevel gameLevel;
+        if (BinaryLevelFormat.EXTENSION.equals(fileHandle.extension()))
+            gameLevel = BinaryLevelFormat.loadGameLevel(fileHandle);
+        else if (ChunkedLevelFile.EXTENSION.equals(fileHandle.extension()))
+            gameLevel = ChunkedLevelFile.loadGameLevel(fileHandle.file());
+        else
+            gameLevel = loadTextGameLevel(fileHandle);
+        eventRecorder.endLevelFileLoad(span, fileHandle.path(), gameLevel.getName(), gameLevel.getWidth(), gameLevel.getHeight());
+        return gameLevel;
+    }
+
+    private static GameLevel loadTextGameLevel(FileHandle fileHandle) throws IOException {
+        long fileLength = fileHandle.length();
+        try (InputStream input = fileHandle.read()) {
+            LevelTextReader reader = new LevelTextReader(input);
+            LevelHeader header = readTextHeader(reader);
+
+            long dataStart = reader.getBytesRead();
+            byte[] firstRow = reader.readFirstRow();
+            if (firstRow == null)
+                throw new IllegalArgumentException("No level data");
+
+            int width = firstRow.length;
+            int layoutWidth = width + 2;
+            // Estimate number of rows from the file size, so that the rows can be parsed straight into the grid
+            long firstRowLength = reader.getBytesRead() - dataStart;
+            int estimatedRows = Math.max(1, (int) ((fileLength - dataStart + firstRowLength - 1) / firstRowLength));
+
+            // Rows are stored top row first, starting at the second row of the layout, and flipped at the end
+            byte[] cells = new byte[(estimatedRows + 2) * layoutWidth];
+            System.arraycopy(firstRow, 0, cells, layoutWidth + 1, width);
+            int rowCount = 1;
+            while (true) {
+                if ((rowCount + 2) * layoutWidth > cells.length)
+                    cells = Arrays.copyOf(cells, (rowCount * 2 + 2) * layoutWidth);
+                if (!reader.readRow(cells, (rowCount + 1) * layoutWidth + 1, width))
+                    break;
+                rowCount++;
+            }
+
+            int layoutHeight = rowCount + 2;
+            if (cells.length != layoutHeight * layoutWidth)
+                cells = Arrays.copyOf(cells, layoutHeight * layoutWidth);
+
+            byte wall = LevelObject.Wall.getCode();
+            Arrays.fill(cells, 0, layoutWidth, wall);
+            Arrays.fill(cells, (layoutHeight - 1) * layoutWidth, layoutHeight * layoutWidth, wall);
+            for (int row = 1; row <= rowCount; row++) {
+                cells[row * layoutWidth] = wall;
+                cells[row * layoutWidth + width + 1] = wall;
             }
+            flipRows(cells, layoutWidth, layoutHeight);
 
-            LevelObject[][] levelLayout = createLevelLayout(result);
+            return new GameLevel(header.getName(), header.getRequiredCollectables(), header.getMaximumLevelTime(),
+                    header.getTicksPerSecond(), new LevelGrid(layoutWidth, layoutHeight, cells));
+        }
+    }
 
-            return new GameLevel(name, collectableCount, maximumTime, levelLayout);
+    private static void flipRows(byte[] cells, int width, int height) {
+        byte[] temp = new byte[width];
+        for (int top = 0, bottom = height - 1; top < bottom; top++, bottom--) {
+            System.arraycopy(cells, top * width, temp, 0, width);
+            System.arraycopy(cells, bottom * width, cells, top * width, width);
+            System.arraycopy(temp, 0, cells, bottom * width, width);
         }
     }
 
+    public static byte getCellCode(int c) {
+        byte code = (c >= 0 && c < CELL_CODES.length) ? CELL_CODES[c] : -1;
+        if (code == -1)
+            throw new IllegalArgumentException("Unknown type of object: " + (char) c);
+        return code;
+    }
+
     private static LevelObject getLevelObject(char c) {
         switch (c) {
             case ' ':
@@ -162,6 +301,6 @@ public class GameLevel {
             case 'F':
                 return LevelObject.Fox;
         }
-        throw new IllegalArgumentException("Unknown type of object: " + c);
+        return null;
     }
 }
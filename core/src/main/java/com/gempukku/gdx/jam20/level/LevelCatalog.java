@@ -0,0 +1,72 @@
+package com.gempukku.gdx.jam20.level;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+
+import java.io.IOException;
+
+/**
+ * List of levels, that reads the headers of the levels on a background thread. Grid of a level is only loaded, when
+ * the level is requested.
+ */
+public class LevelCatalog implements Disposable {
+    private final FileHandle[] levelFiles;
+    private final LevelHeader[] headers;
+    private final AsyncExecutor executor = new AsyncExecutor(1, "LevelCatalog");
+
+    public LevelCatalog(FileHandle... levelFiles) {
+        this.levelFiles = levelFiles;
+        this.headers = new LevelHeader[levelFiles.length];
+    }
+
+    public int getLevelCount() {
+        return levelFiles.length;
+    }
+
+    /**
+     * Returns header of the level, or null if it has not been loaded yet.
+     */
+    public LevelHeader getHeader(int index) {
+        return headers[index];
+    }
+
+    /**
+     * Starts loading the headers of all the levels. Listener is notified on the rendering thread.
+     */
+    public void loadHeaders(HeaderListener listener) {
+        for (int i = 0; i < levelFiles.length; i++) {
+            int index = i;
+            executor.submit(
+                    () -> {
+                        try {
+                            LevelHeader header = GameLevel.loadLevelHeader(levelFiles[index]);
+                            Gdx.app.postRunnable(
+                                    () -> {
+                                        headers[index] = header;
+                                        listener.headerLoaded(index, header);
+                                    });
+                        } catch (IOException | RuntimeException exp) {
+                            Gdx.app.postRunnable(() -> listener.headerFailed(index, exp));
+                        }
+                        return null;
+                    });
+        }
+    }
+
+    public GameLevel loadGameLevel(int index) throws IOException {
+        return GameLevel.loadGameLevel(levelFiles[index]);
+    }
+
+    @Override
+    public void dispose() {
+        executor.dispose();
+    }
+
+    public interface HeaderListener {
+        void headerLoaded(int index, LevelHeader header);
+
+        void headerFailed(int index, Exception exception);
+    }
+}
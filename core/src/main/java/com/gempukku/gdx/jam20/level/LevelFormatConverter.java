@@ -0,0 +1,59 @@
+package com.gempukku.gdx.jam20.level;
+
+import com.badlogic.gdx.files.FileHandle;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Converts levels from the text format to the binary format. Each argument is either a level file, or a directory,
+ * in which all the text level files are converted. Binary file is written next to the text one. Option "--rle" turns on
+ * the run-length encoding of cells, option "--chunked" writes the levels in the chunked format instead.
+ */
+public class LevelFormatConverter {
+    private static final String TEXT_EXTENSION = "level";
+
+    public static void main(String[] args) throws IOException {
+        boolean runLengthEncoded = false;
+        boolean chunked = false;
+        for (String arg : args) {
+            if (arg.equals("--rle")) {
+                runLengthEncoded = true;
+            } else if (arg.equals("--chunked")) {
+                chunked = true;
+            } else {
+                FileHandle fileHandle = new FileHandle(new File(arg));
+                if (fileHandle.isDirectory()) {
+                    for (FileHandle child : fileHandle.list("." + TEXT_EXTENSION))
+                        convert(child, runLengthEncoded, chunked);
+                } else {
+                    convert(fileHandle, runLengthEncoded, chunked);
+                }
+            }
+        }
+    }
+
+    private static void convert(FileHandle textLevel, boolean runLengthEncoded, boolean chunked) throws IOException {
+        if (chunked)
+            convertToChunked(textLevel, ChunkedLevelFile.DEFAULT_CHUNK_SIZE);
+        else
+            convert(textLevel, runLengthEncoded);
+    }
+
+    public static FileHandle convert(FileHandle textLevel, boolean runLengthEncoded) throws IOException {
+        FileHandle binaryLevel = textLevel.sibling(textLevel.nameWithoutExtension() + "." + BinaryLevelFormat.EXTENSION);
+        convert(textLevel, binaryLevel, runLengthEncoded);
+        return binaryLevel;
+    }
+
+    public static void convert(FileHandle textLevel, FileHandle binaryLevel, boolean runLengthEncoded) throws IOException {
+        GameLevel gameLevel = GameLevel.loadGameLevel(textLevel);
+        BinaryLevelFormat.write(gameLevel, runLengthEncoded, binaryLevel);
+    }
+
+    public static FileHandle convertToChunked(FileHandle textLevel, int chunkSize) throws IOException {
+        FileHandle chunkedLevel = textLevel.sibling(textLevel.nameWithoutExtension() + "." + ChunkedLevelFile.EXTENSION);
+        ChunkedLevelFile.write(GameLevel.loadGameLevel(textLevel), chunkSize, chunkedLevel.file());
+        return chunkedLevel;
+    }
+}
@@ -0,0 +1,47 @@
+package com.gempukku.gdx.jam20.level;
+
+/**
+ * Cells of a level, stored row-major as {@link LevelObject} codes, one byte per cell. Row with y = 0 is the bottom
+ * row of the level.
+ */
+public class LevelGrid {
+    private final int width;
+    private final int height;
+    private final byte[] cells;
+
+    public LevelGrid(int width, int height) {
+        this(width, height, new byte[width * height]);
+    }
+
+    public LevelGrid(int width, int height, byte[] cells) {
+        if (cells.length != width * height)
+            throw new IllegalArgumentException("Cell data does not match level dimensions");
+        this.width = width;
+        this.height = height;
+        this.cells = cells;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public byte[] getCells() {
+        return cells;
+    }
+
+    public byte getCell(int x, int y) {
+        return cells[y * width + x];
+    }
+
+    public LevelObject getLevelObject(int x, int y) {
+        return LevelObject.fromCode(cells[y * width + x]);
+    }
+
+    public void setLevelObject(int x, int y, LevelObject levelObject) {
+        cells[y * width + x] = levelObject.getCode();
+    }
+}
@@ -0,0 +1,55 @@
+package com.gempukku.gdx.jam20.level;
+
+/**
+ * Metadata of a level, that can be read without loading its grid.
+ */
+public class LevelHeader {
+    // Size of the levels, that is not known without reading their grid
+    public static final int UNKNOWN_SIZE = -1;
+
+    private final String name;
+    private final int requiredCollectables;
+    private final int maximumLevelTime;
+    private final int ticksPerSecond;
+    private final int width;
+    private final int height;
+
+    public LevelHeader(String name, int requiredCollectables, int maximumLevelTime, int ticksPerSecond, int width, int height) {
+        this.name = name;
+        this.requiredCollectables = requiredCollectables;
+        this.maximumLevelTime = maximumLevelTime;
+        this.ticksPerSecond = ticksPerSecond;
+        this.width = width;
+        this.height = height;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getRequiredCollectables() {
+        return requiredCollectables;
+    }
+
+    public int getMaximumLevelTime() {
+        return maximumLevelTime;
+    }
+
+    public int getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    /**
+     * Returns the width of the level, or {@link #UNKNOWN_SIZE} for levels in the text format.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the level, or {@link #UNKNOWN_SIZE} for levels in the text format.
+     */
+    public int getHeight() {
+        return height;
+    }
+}
@@ -15,11 +15,26 @@ public enum LevelObject {
     Player("player-down", false, false, true),
     Fox("fox", false, false, true, true);
 
+    public static final int CAN_BE_ENTERED = 1;
+    public static final int CAN_BE_MOVED = 1 << 1;
+    public static final int CAN_BE_CRUSHED = 1 << 2;
+    public static final int TOXIC_TO_PLAYER = 1 << 3;
+
+    private static final LevelObject[] VALUES = values();
+    private static final int[] PROPERTIES = new int[VALUES.length];
+
+    static {
+        for (LevelObject value : VALUES) {
+            PROPERTIES[value.ordinal()] = value.properties;
+        }
+    }
+
     private final boolean canBeEntered;
     private final boolean canBeMoved;
     private final String spriteRegionName;
     private final boolean canBeCrushed;
     private final boolean toxicToPlayer;
+    private final int properties;
 
     LevelObject(String spriteRegionName) {
         this(spriteRegionName, false);
@@ -43,12 +58,46 @@ public enum LevelObject {
         this.canBeMoved = canBeMoved;
         this.canBeCrushed = canBeCrushed;
         this.toxicToPlayer = toxicToPlayer;
+        this.properties = (canBeEntered ? CAN_BE_ENTERED : 0) | (canBeMoved ? CAN_BE_MOVED : 0)
+                | (canBeCrushed ? CAN_BE_CRUSHED : 0) | (toxicToPlayer ? TOXIC_TO_PLAYER : 0);
+    }
+
+    /**
+     * Returns the object stored in a level grid cell.
+     */
+    public static LevelObject fromCode(byte code) {
+        return VALUES[code];
+    }
+
+    /**
+     * Returns the property bitmask of the object stored in a level grid cell.
+     */
+    public static int getProperties(byte code) {
+        return PROPERTIES[code];
+    }
+
+    /**
+     * Returns the value stored in a level grid cell for this object.
+     */
+    public byte getCode() {
+        return (byte) ordinal();
+    }
+
+    public int getProperties() {
+        return properties;
     }
 
     public boolean isSpawnSprite() {
         return spriteRegionName != null;
     }
 
+    /**
+     * Checks, if the object never moves, such objects are drawn in the static tile layer instead of as sprites.
+     */
+    public boolean isStaticTile() {
+        return this == Exit_Inactive || this == Wall || this == Dirt;
+    }
+
     public String getSpriteRegionName() {
         return spriteRegionName;
     }
@@ -0,0 +1,129 @@
+package com.gempukku.gdx.jam20.level;
+
+import com.badlogic.gdx.utils.ByteArray;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the text level format straight from bytes, parsing rows of cells into a destination array without creating
+ * intermediate objects per row or cell.
+ */
+class LevelTextReader {
+    private static final int DEFAULT_BUFFER_SIZE = 65536;
+
+    private final InputStream input;
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+    private long bytesRead;
+
+    LevelTextReader(InputStream input) {
+        this(input, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param bufferSize size of the blocks read from the input, small buffer is enough, if only the header is read
+     */
+    LevelTextReader(InputStream input, int bufferSize) {
+        this.input = input;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Returns number of bytes consumed from the input so far.
+     */
+    long getBytesRead() {
+        return bytesRead;
+    }
+
+    String readLine() throws IOException {
+        ByteArray line = new ByteArray();
+        int value;
+        while ((value = read()) != -1 && value != '\n') {
+            if (value != '\r')
+                line.add((byte) value);
+        }
+        if (value == -1 && line.size == 0)
+            return null;
+        return new String(line.items, 0, line.size, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Checks, if the next line starts with a digit, without consuming it.
+     */
+    boolean isNextLineNumber() throws IOException {
+        if (position == limit && !fill())
+            return false;
+        int value = buffer[position];
+        return value >= '0' && value <= '9';
+    }
+
+    /**
+     * Reads the first row of cells, which determines the width of the level.
+     *
+     * @return cell codes of the row, or null if there are no more rows
+     */
+    byte[] readFirstRow() throws IOException {
+        ByteArray row = new ByteArray();
+        while (true) {
+            int value = read();
+            if (value == -1) {
+                if (row.size == 0)
+                    return null;
+                return row.toArray();
+            } else if (value == '\n') {
+                if (row.size != 0)
+                    return row.toArray();
+            } else if (value != '\r') {
+                row.add(GameLevel.getCellCode(value));
+            }
+        }
+    }
+
+    /**
+     * Reads a row of exactly <code>width</code> cells into the destination array. Empty lines are skipped.
+     *
+     * @return true if the row was read, false if there are no more rows
+     */
+    boolean readRow(byte[] destination, int offset, int width) throws IOException {
+        int count = 0;
+        while (true) {
+            if (position == limit && !fill()) {
+                if (count == 0)
+                    return false;
+                break;
+            }
+            byte value = buffer[position++];
+            bytesRead++;
+            if (value == '\n') {
+                if (count != 0)
+                    break;
+            } else if (value != '\r') {
+                if (count == width)
+                    throw new IllegalArgumentException("Level data has to be in a rectangle shape");
+                destination[offset + count++] = GameLevel.getCellCode(value & 0xff);
+            }
+        }
+        if (count != width)
+            throw new IllegalArgumentException("Level data has to be in a rectangle shape");
+        return true;
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill())
+            return -1;
+        bytesRead++;
+        return buffer[position++] & 0xff;
+    }
+
+    private boolean fill() throws IOException {
+        int read = input.read(buffer, 0, buffer.length);
+        if (read <= 0)
+            return false;
+        position = 0;
+        limit = read;
+        return true;
+    }
+}
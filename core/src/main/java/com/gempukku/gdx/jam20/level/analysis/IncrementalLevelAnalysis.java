@@ -0,0 +1,357 @@
+package com.gempukku.gdx.jam20.level.analysis;
+
+import com.badlogic.gdx.utils.IntIntMap;
+import com.gempukku.gdx.jam20.level.GameLevel;
+import com.gempukku.gdx.jam20.level.LevelGrid;
+import com.gempukku.gdx.jam20.level.LevelObject;
+
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Level parsed from the editor text, together with the cells the player can reach, both updated as the text changes.
+ * Only the lines between the first and the last changed character are parsed again. The reachable area grows from
+ * the changed cells, that open a way from it, and is only flood-filled from the start again, when a change can cut
+ * it - a reachable cell becomes blocked, or the player moves.
+ * <p>
+ * Changes, that add or remove lines, or change the length of a line, are handled by parsing the whole text again.
+ * Not thread safe, meant to be used by a single analysis thread.
+ */
+class IncrementalLevelAnalysis {
+    // Number of cells processed between checks for cancellation
+    private static final int CANCEL_CHECK_INTERVAL = 4096;
+
+    private static final byte PLAYER = LevelObject.Player.getCode();
+    private static final byte GRUB = LevelObject.Grub.getCode();
+    private static final byte WALL = LevelObject.Wall.getCode();
+    private static final byte EXIT_INACTIVE = LevelObject.Exit_Inactive.getCode();
+
+    // Text the level was parsed from, null until a text is parsed successfully
+    private String text;
+    // Start of each line of the text, and the row of level data it holds, -1 for empty lines
+    private int[] lineStarts;
+    private int[] lineRows;
+    private int lineCount;
+    private int dataWidth;
+
+    // Level layout, including the wall border
+    private int width;
+    private int height;
+    private byte[] cells;
+    private int playerCount;
+    private int exitCount;
+    private int grubCount;
+    private int start;
+    private int exit;
+    private boolean startOrExitChanged;
+
+    private boolean[] visited;
+    private int[] queue;
+    private boolean reachabilityValid;
+    private int reachableGrubCount;
+    // Cells changed since the reachable area was last updated, with their code at that time
+    private final IntIntMap pendingChanges = new IntIntMap();
+
+    /**
+     * Updates the level with the text and analyzes it.
+     *
+     * @return the analysis, or null if it got cancelled
+     * @throws IllegalArgumentException if the text is not a valid level, the previous valid text is kept
+     */
+    ReachabilityAnalysis update(String newText, BooleanSupplier cancelled) {
+        if (text == null || !updateChangedLines(newText))
+            parse(newText);
+        text = newText;
+
+        if (playerCount != 1)
+            throw new IllegalArgumentException("Level must have exactly one player");
+        if (exitCount <= 0)
+            throw new IllegalArgumentException("Level must have at least one exit");
+
+        if (!updateReachability(cancelled)) {
+            reachabilityValid = false;
+            return null;
+        }
+        // Result gets its own copy of the cells, as this level keeps changing with the following edits
+        return new ReachabilityAnalysis(new LevelGrid(width, height, cells.clone()), grubCount, reachableGrubCount,
+                isExitReachable());
+    }
+
+    private void parse(String newText) {
+        int[] newLineStarts = new int[16];
+        int newLineCount = 0;
+        int position = 0;
+        while (true) {
+            if (newLineCount == newLineStarts.length)
+                newLineStarts = Arrays.copyOf(newLineStarts, newLineCount * 2);
+            newLineStarts[newLineCount++] = position;
+            int end = newText.indexOf('\n', position);
+            if (end == -1)
+                break;
+            position = end + 1;
+        }
+
+        int[] newLineRows = new int[newLineCount];
+        int rowCount = 0;
+        int newDataWidth = 0;
+        for (int line = 0; line < newLineCount; line++) {
+            int length = getLineEnd(newText, newLineStarts, newLineCount, line) - newLineStarts[line];
+            if (length == 0) {
+                newLineRows[line] = -1;
+            } else {
+                if (rowCount == 0)
+                    newDataWidth = length;
+                else if (length != newDataWidth)
+                    throw new IllegalArgumentException("Level data has to be in a rectangle shape");
+                newLineRows[line] = rowCount++;
+            }
+        }
+        if (rowCount == 0)
+            throw new IllegalArgumentException("No level data");
+
+        int newWidth = newDataWidth + 2;
+        int newHeight = rowCount + 2;
+        byte[] newCells = new byte[newWidth * newHeight];
+        Arrays.fill(newCells, WALL);
+        for (int line = 0; line < newLineCount; line++) {
+            if (newLineRows[line] != -1)
+                parseRow(newText, newLineStarts[line], newDataWidth, newCells, getRowOffset(newWidth, newHeight, newLineRows[line]));
+        }
+
+        text = null;
+        lineStarts = newLineStarts;
+        lineRows = newLineRows;
+        lineCount = newLineCount;
+        dataWidth = newDataWidth;
+        width = newWidth;
+        height = newHeight;
+        cells = newCells;
+        if (visited == null || visited.length != newCells.length) {
+            visited = new boolean[newCells.length];
+            queue = new int[newCells.length];
+        }
+
+        playerCount = 0;
+        exitCount = 0;
+        grubCount = 0;
+        for (byte cell : newCells)
+            countCell(cell, 1);
+        startOrExitChanged = true;
+        reachabilityValid = false;
+        pendingChanges.clear();
+    }
+
+    /**
+     * Parses again only the lines between the first and the last changed character.
+     *
+     * @return false, if the change affects the shape of the level, and the whole text has to be parsed again
+     */
+    private boolean updateChangedLines(String newText) {
+        int oldLength = text.length();
+        int newLength = newText.length();
+        int minLength = Math.min(oldLength, newLength);
+        int prefix = 0;
+        while (prefix < minLength && text.charAt(prefix) == newText.charAt(prefix))
+            prefix++;
+        if (prefix == oldLength && prefix == newLength)
+            return true;
+        int suffix = 0;
+        while (suffix < minLength - prefix && text.charAt(oldLength - 1 - suffix) == newText.charAt(newLength - 1 - suffix))
+            suffix++;
+
+        int newlines = countNewlines(text, prefix, oldLength - suffix);
+        if (newlines != countNewlines(newText, prefix, newLength - suffix))
+            return false;
+
+        int firstLine = findLine(prefix);
+        int lastLine = firstLine + newlines;
+        int[] changedStarts = new int[newlines + 1];
+        int position = lineStarts[firstLine];
+        for (int i = 0; i <= newlines; i++) {
+            if (lineRows[firstLine + i] == -1)
+                return false;
+            int end = newText.indexOf('\n', position);
+            if (end == -1)
+                end = newLength;
+            if (end - position != dataWidth)
+                return false;
+            changedStarts[i] = position;
+            position = end + 1;
+        }
+
+        // Rows are parsed before any change is applied, so that an unknown character keeps the previous level
+        byte[] rows = new byte[(newlines + 1) * dataWidth];
+        for (int i = 0; i <= newlines; i++)
+            parseRow(newText, changedStarts[i], dataWidth, rows, i * dataWidth);
+
+        for (int i = 0; i <= newlines; i++) {
+            int offset = getRowOffset(width, height, lineRows[firstLine + i]);
+            for (int x = 0; x < dataWidth; x++) {
+                int index = offset + x;
+                byte oldCode = cells[index];
+                byte newCode = rows[i * dataWidth + x];
+                if (oldCode != newCode) {
+                    cells[index] = newCode;
+                    countCell(oldCode, -1);
+                    countCell(newCode, 1);
+                    if (oldCode == PLAYER || newCode == PLAYER || oldCode == EXIT_INACTIVE || newCode == EXIT_INACTIVE)
+                        startOrExitChanged = true;
+                    if (!pendingChanges.containsKey(index))
+                        pendingChanges.put(index, oldCode);
+                }
+            }
+        }
+
+        System.arraycopy(changedStarts, 1, lineStarts, firstLine + 1, newlines);
+        int shift = newLength - oldLength;
+        for (int line = lastLine + 1; line < lineCount; line++)
+            lineStarts[line] += shift;
+        return true;
+    }
+
+    /**
+     * Brings the reachable area up to date with the changed cells.
+     *
+     * @return false, if it got cancelled
+     */
+    private boolean updateReachability(BooleanSupplier cancelled) {
+        if (startOrExitChanged) {
+            int previousStart = start;
+            findStartAndExit();
+            if (start != previousStart)
+                reachabilityValid = false;
+            startOrExitChanged = false;
+        }
+
+        int tail = 0;
+        if (reachabilityValid) {
+            for (IntIntMap.Entry change : pendingChanges) {
+                int index = change.key;
+                byte oldCode = (byte) change.value;
+                byte newCode = cells[index];
+                if (visited[index]) {
+                    if (!ReachabilityAnalysis.isPassable(newCode)) {
+                        // Blocked cell might cut off a part of the area
+                        reachabilityValid = false;
+                        break;
+                    }
+                    if (oldCode == GRUB)
+                        reachableGrubCount--;
+                    if (newCode == GRUB)
+                        reachableGrubCount++;
+                } else if (ReachabilityAnalysis.isPassable(newCode) && isNextToVisited(index)) {
+                    tail = visit(index, tail);
+                }
+            }
+        }
+        pendingChanges.clear();
+
+        if (!reachabilityValid) {
+            Arrays.fill(visited, false);
+            reachableGrubCount = 0;
+            visited[start] = true;
+            queue[0] = start;
+            tail = 1;
+        }
+        if (!flood(tail, cancelled))
+            return false;
+        reachabilityValid = true;
+        return true;
+    }
+
+    /**
+     * Expands the reachable area from the cells in the queue.
+     */
+    private boolean flood(int tail, BooleanSupplier cancelled) {
+        int head = 0;
+        // Level is surrounded by walls, so neighbours of a reachable cell are always within the grid
+        while (head < tail) {
+            if (head % CANCEL_CHECK_INTERVAL == 0 && cancelled.getAsBoolean())
+                return false;
+
+            int index = queue[head++];
+            tail = visitIfPassable(index + width, tail);
+            tail = visitIfPassable(index - width, tail);
+            tail = visitIfPassable(index + 1, tail);
+            tail = visitIfPassable(index - 1, tail);
+        }
+        return true;
+    }
+
+    private int visitIfPassable(int index, int tail) {
+        if (!visited[index] && ReachabilityAnalysis.isPassable(cells[index]))
+            return visit(index, tail);
+        return tail;
+    }
+
+    private int visit(int index, int tail) {
+        visited[index] = true;
+        if (cells[index] == GRUB)
+            reachableGrubCount++;
+        queue[tail] = index;
+        return tail + 1;
+    }
+
+    private boolean isNextToVisited(int index) {
+        return visited[index + width] || visited[index - width] || visited[index + 1] || visited[index - 1];
+    }
+
+    private boolean isExitReachable() {
+        return exit != -1 && isNextToVisited(exit);
+    }
+
+    private void findStartAndExit() {
+        start = -1;
+        exit = -1;
+        // Exit that opens is the first one in the level data, which starts with the top row
+        for (int y = height - 1; y >= 0; y--) {
+            for (int x = 0; x < width; x++) {
+                int index = y * width + x;
+                byte cell = cells[index];
+                if (cell == PLAYER)
+                    start = index;
+                else if (cell == EXIT_INACTIVE && exit == -1)
+                    exit = index;
+            }
+        }
+    }
+
+    private void countCell(byte cell, int count) {
+        if (cell == PLAYER)
+            playerCount += count;
+        else if (cell == GRUB)
+            grubCount += count;
+        else if (cell == EXIT_INACTIVE)
+            exitCount += count;
+    }
+
+    private int findLine(int position) {
+        int index = Arrays.binarySearch(lineStarts, 0, lineCount, position);
+        return (index >= 0) ? index : -index - 2;
+    }
+
+    private static void parseRow(String text, int start, int length, byte[] destination, int offset) {
+        for (int i = 0; i < length; i++)
+            destination[offset + i] = GameLevel.getCellCode(text.charAt(start + i));
+    }
+
+    /**
+     * Returns index of the first data cell of the row, rows of the text start with the top row of the level.
+     */
+    private static int getRowOffset(int width, int height, int row) {
+        return (height - 2 - row) * width + 1;
+    }
+
+    private static int getLineEnd(String text, int[] lineStarts, int lineCount, int line) {
+        return (line + 1 < lineCount) ? lineStarts[line + 1] - 1 : text.length();
+    }
+
+    private static int countNewlines(String text, int start, int end) {
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == '\n')
+                count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,70 @@
+package com.gempukku.gdx.jam20.level.analysis;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Validates and analyzes level text on a background thread. Only the latest request matters - requests still waiting
+ * are skipped, and the running one is cancelled, when a new request comes in.
+ * <p>
+ * The level is kept between the requests, so that only the part of the text, that changed, is parsed and analyzed
+ * again, see {@link IncrementalLevelAnalysis}.
+ */
+public class LevelAnalyzer implements Disposable {
+    private final AsyncExecutor executor = new AsyncExecutor(1, "LevelAnalyzer");
+    private final AtomicInteger generation = new AtomicInteger();
+    // Only used on the executor thread
+    private final IncrementalLevelAnalysis levelAnalysis = new IncrementalLevelAnalysis();
+
+    /**
+     * Starts analysis of the level. Listener is notified on the rendering thread, unless another analysis is
+     * requested in the meantime.
+     */
+    public void analyze(String levelText, AnalysisListener listener) {
+        int requestGeneration = generation.incrementAndGet();
+        executor.submit(
+                () -> {
+                    if (generation.get() != requestGeneration)
+                        return null;
+                    try {
+                        ReachabilityAnalysis analysis = levelAnalysis.update(levelText,
+                                () -> generation.get() != requestGeneration);
+                        if (analysis != null)
+                            Gdx.app.postRunnable(
+                                    () -> {
+                                        if (generation.get() == requestGeneration)
+                                            listener.analysisFinished(analysis);
+                                    });
+                    } catch (IllegalArgumentException exp) {
+                        Gdx.app.postRunnable(
+                                () -> {
+                                    if (generation.get() == requestGeneration)
+                                        listener.analysisFailed(exp.getMessage());
+                                });
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * Cancels the analysis in progress, its listener will not be notified.
+     */
+    public void cancel() {
+        generation.incrementAndGet();
+    }
+
+    @Override
+    public void dispose() {
+        cancel();
+        executor.dispose();
+    }
+
+    public interface AnalysisListener {
+        void analysisFinished(ReachabilityAnalysis analysis);
+
+        void analysisFailed(String message);
+    }
+}
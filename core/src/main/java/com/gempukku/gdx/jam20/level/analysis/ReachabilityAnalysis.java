@@ -0,0 +1,49 @@
+package com.gempukku.gdx.jam20.level.analysis;
+
+import com.gempukku.gdx.jam20.level.LevelGrid;
+import com.gempukku.gdx.jam20.level.LevelObject;
+
+/**
+ * Cells the player can reach from the start, if stones never move. Foxes are treated as empty space, as they move
+ * out of the way. As stones can be pushed or fall, this is only an estimate of the level being solvable.
+ * <p>
+ * Analyses are created by {@link IncrementalLevelAnalysis}, from the level the editor text describes.
+ */
+public class ReachabilityAnalysis {
+    private static final byte FOX = LevelObject.Fox.getCode();
+
+    private final LevelGrid levelGrid;
+    private final int grubCount;
+    private final int reachableGrubCount;
+    private final boolean exitReachable;
+
+    ReachabilityAnalysis(LevelGrid levelGrid, int grubCount, int reachableGrubCount, boolean exitReachable) {
+        this.levelGrid = levelGrid;
+        this.grubCount = grubCount;
+        this.reachableGrubCount = reachableGrubCount;
+        this.exitReachable = exitReachable;
+    }
+
+    public LevelGrid getLevelGrid() {
+        return levelGrid;
+    }
+
+    public int getGrubCount() {
+        return grubCount;
+    }
+
+    public int getReachableGrubCount() {
+        return reachableGrubCount;
+    }
+
+    /**
+     * Returns if the exit, that opens once enough grubs are collected, is next to a reachable cell.
+     */
+    public boolean isExitReachable() {
+        return exitReachable;
+    }
+
+    static boolean isPassable(byte cell) {
+        return cell == FOX || (LevelObject.getProperties(cell) & LevelObject.CAN_BE_ENTERED) != 0;
+    }
+}
@@ -0,0 +1,130 @@
+package com.gempukku.gdx.jam20.level.replay;
+
+import com.gempukku.gdx.jam20.level.system.InputSystem;
+
+import java.io.*;
+
+/**
+ * Recorded run of a level - the direction requested by the player on each major tick, stored as runs of ticks with
+ * the same direction.
+ * <p>
+ * File layout: magic, version, flags, level name (modified UTF-8), number of runs, then for each run the direction
+ * (-1 for no movement) and the number of ticks. Numbers of runs and ticks are variable length.
+ */
+public class Replay {
+    public static final String EXTENSION = "replay";
+
+    private static final int MAGIC = 0x47525059;
+    private static final int VERSION = 1;
+    private static final int FLAG_TIMED_OUT = 1;
+    private static final InputSystem.Direction[] DIRECTIONS = InputSystem.Direction.values();
+
+    static final byte NO_DIRECTION = -1;
+
+    private final String levelName;
+    private final byte[] runDirections;
+    private final int[] runLengths;
+    private final long tickCount;
+    private final boolean timedOut;
+
+    Replay(String levelName, byte[] runDirections, int[] runLengths, boolean timedOut) {
+        this.levelName = levelName;
+        this.runDirections = runDirections;
+        this.runLengths = runLengths;
+        this.timedOut = timedOut;
+
+        long ticks = 0;
+        for (int runLength : runLengths)
+            ticks += runLength;
+        this.tickCount = ticks;
+    }
+
+    public String getLevelName() {
+        return levelName;
+    }
+
+    /**
+     * Returns the number of major ticks processed during the run.
+     */
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * Returns if the level ran out of time after the last recorded tick.
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    public int getRunCount() {
+        return runLengths.length;
+    }
+
+    public int getRunLength(int run) {
+        return runLengths[run];
+    }
+
+    /**
+     * Returns the direction requested in all the ticks of the run, or null if the player did not move.
+     */
+    public InputSystem.Direction getRunDirection(int run) {
+        byte direction = runDirections[run];
+        return (direction == NO_DIRECTION) ? null : DIRECTIONS[direction];
+    }
+
+    public void write(OutputStream outputStream) throws IOException {
+        DataOutputStream output = new DataOutputStream(outputStream);
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+        output.writeByte(timedOut ? FLAG_TIMED_OUT : 0);
+        output.writeUTF(levelName);
+        writeVariableLength(output, runLengths.length);
+        for (int i = 0; i < runLengths.length; i++) {
+            output.writeByte(runDirections[i]);
+            writeVariableLength(output, runLengths[i]);
+        }
+        output.flush();
+    }
+
+    public static Replay read(InputStream inputStream) throws IOException {
+        DataInputStream input = new DataInputStream(inputStream);
+        if (input.readInt() != MAGIC)
+            throw new IOException("Not a replay file");
+        int version = input.readUnsignedByte();
+        if (version != VERSION)
+            throw new IOException("Unsupported replay version: " + version);
+        int flags = input.readUnsignedByte();
+        String levelName = input.readUTF();
+        int runCount = readVariableLength(input);
+        byte[] runDirections = new byte[runCount];
+        int[] runLengths = new int[runCount];
+        for (int i = 0; i < runCount; i++) {
+            byte direction = input.readByte();
+            if (direction != NO_DIRECTION && (direction < 0 || direction >= DIRECTIONS.length))
+                throw new IOException("Unknown direction: " + direction);
+            runDirections[i] = direction;
+            runLengths[i] = readVariableLength(input);
+        }
+        return new Replay(levelName, runDirections, runLengths, (flags & FLAG_TIMED_OUT) != 0);
+    }
+
+    private static void writeVariableLength(DataOutputStream output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    private static int readVariableLength(DataInputStream input) throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int part = input.readUnsignedByte();
+            result |= (part & 0x7F) << shift;
+            if ((part & 0x80) == 0)
+                return result;
+        }
+        throw new IOException("Invalid variable length number");
+    }
+}
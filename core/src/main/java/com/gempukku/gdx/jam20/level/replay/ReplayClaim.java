@@ -0,0 +1,43 @@
+package com.gempukku.gdx.jam20.level.replay;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.gempukku.gdx.jam20.level.simulation.FinishReason;
+
+/**
+ * Recorded run of a level together with the outcome claimed for it.
+ */
+public class ReplayClaim {
+    private final FileHandle levelFile;
+    private final Replay replay;
+    private final FinishReason finishReason;
+    private final long tickCount;
+    private final int collectablesCollected;
+
+    public ReplayClaim(FileHandle levelFile, Replay replay, FinishReason finishReason, long tickCount, int collectablesCollected) {
+        this.levelFile = levelFile;
+        this.replay = replay;
+        this.finishReason = finishReason;
+        this.tickCount = tickCount;
+        this.collectablesCollected = collectablesCollected;
+    }
+
+    public FileHandle getLevelFile() {
+        return levelFile;
+    }
+
+    public Replay getReplay() {
+        return replay;
+    }
+
+    public FinishReason getFinishReason() {
+        return finishReason;
+    }
+
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    public int getCollectablesCollected() {
+        return collectablesCollected;
+    }
+}
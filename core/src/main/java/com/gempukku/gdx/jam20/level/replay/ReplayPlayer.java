@@ -0,0 +1,64 @@
+package com.gempukku.gdx.jam20.level.replay;
+
+import com.gempukku.gdx.jam20.level.GameLevel;
+import com.gempukku.gdx.jam20.level.simulation.FinishReason;
+import com.gempukku.gdx.jam20.level.simulation.LevelSimulation;
+import com.gempukku.gdx.jam20.level.system.InputSystem;
+
+/**
+ * Feeds the directions of a recorded run back, one major tick at a time.
+ */
+public class ReplayPlayer {
+    private final Replay replay;
+    private int run;
+    private int runTick;
+    private long tick;
+
+    public ReplayPlayer(Replay replay) {
+        this.replay = replay;
+    }
+
+    public Replay getReplay() {
+        return replay;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public boolean hasNextTick() {
+        return tick < replay.getTickCount();
+    }
+
+    /**
+     * Returns if all the ticks have been played, and the level ran out of time afterwards in the recorded run.
+     */
+    public boolean isTimedOut() {
+        return replay.isTimedOut() && !hasNextTick();
+    }
+
+    public InputSystem.Direction nextDirection() {
+        while (runTick == replay.getRunLength(run)) {
+            run++;
+            runTick = 0;
+        }
+        runTick++;
+        tick++;
+        return replay.getRunDirection(run);
+    }
+
+    /**
+     * Replays the whole run on the simulation as fast as possible.
+     *
+     * @return the way the level finished, or null if the recorded run ended before the level finished
+     */
+    public static FinishReason play(LevelSimulation simulation, GameLevel gameLevel, Replay replay) {
+        simulation.loadLevel(gameLevel);
+        ReplayPlayer player = new ReplayPlayer(replay);
+        while (!simulation.isFinished() && player.hasNextTick())
+            simulation.tick(player.nextDirection());
+        if (!simulation.isFinished() && player.isTimedOut())
+            simulation.runOutOfTime();
+        return simulation.getFinishReason();
+    }
+}
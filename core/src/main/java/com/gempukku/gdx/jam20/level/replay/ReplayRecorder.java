@@ -0,0 +1,41 @@
+package com.gempukku.gdx.jam20.level.replay;
+
+import com.badlogic.gdx.utils.ByteArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.gempukku.gdx.jam20.level.system.InputSystem;
+
+/**
+ * Records the directions requested by the player on each major tick. Consecutive ticks with the same direction are
+ * merged into a single run.
+ */
+public class ReplayRecorder {
+    private final ByteArray runDirections = new ByteArray();
+    private final IntArray runLengths = new IntArray();
+    private String levelName;
+    private boolean timedOut;
+
+    public void start(String levelName) {
+        this.levelName = levelName;
+        runDirections.clear();
+        runLengths.clear();
+        timedOut = false;
+    }
+
+    public void recordTick(InputSystem.Direction direction) {
+        byte code = (direction != null) ? (byte) direction.ordinal() : Replay.NO_DIRECTION;
+        if (runDirections.size > 0 && runDirections.peek() == code) {
+            runLengths.incr(runLengths.size - 1, 1);
+        } else {
+            runDirections.add(code);
+            runLengths.add(1);
+        }
+    }
+
+    public void recordTimeOut() {
+        timedOut = true;
+    }
+
+    public Replay createReplay() {
+        return new Replay(levelName, runDirections.toArray(), runLengths.toArray(), timedOut);
+    }
+}
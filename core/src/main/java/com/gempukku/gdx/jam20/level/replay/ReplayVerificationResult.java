@@ -0,0 +1,42 @@
+package com.gempukku.gdx.jam20.level.replay;
+
+import com.gempukku.gdx.jam20.level.simulation.FinishReason;
+
+/**
+ * Outcome of re-simulating a claimed run.
+ */
+public class ReplayVerificationResult {
+    private final ReplayClaim claim;
+    private final FinishReason finishReason;
+    private final long tickCount;
+    private final int collectablesCollected;
+
+    public ReplayVerificationResult(ReplayClaim claim, FinishReason finishReason, long tickCount, int collectablesCollected) {
+        this.claim = claim;
+        this.finishReason = finishReason;
+        this.tickCount = tickCount;
+        this.collectablesCollected = collectablesCollected;
+    }
+
+    public ReplayClaim getClaim() {
+        return claim;
+    }
+
+    public FinishReason getFinishReason() {
+        return finishReason;
+    }
+
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    public int getCollectablesCollected() {
+        return collectablesCollected;
+    }
+
+    public boolean isValid() {
+        return finishReason == claim.getFinishReason()
+                && tickCount == claim.getTickCount()
+                && collectablesCollected == claim.getCollectablesCollected();
+    }
+}
@@ -0,0 +1,88 @@
+package com.gempukku.gdx.jam20.level.replay;
+
+import com.badlogic.gdx.utils.ObjectMap;
+import com.gempukku.gdx.jam20.level.GameLevel;
+import com.gempukku.gdx.jam20.level.simulation.FinishReason;
+import com.gempukku.gdx.jam20.level.simulation.LevelSimulation;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Verifies claimed runs by replaying them. Replays are split between the threads of a fork-join pool, so that idle
+ * threads steal the remaining work from the busy ones. Every level is parsed once per batch, and every thread reuses
+ * its own simulation for all the replays it processes.
+ */
+public class ReplayVerifier {
+    // Number of replays, that is verified without splitting the work further
+    private static final int BATCH_SIZE = 8;
+
+    private final ForkJoinPool pool;
+    private final ThreadLocal<LevelSimulation> simulations = ThreadLocal.withInitial(LevelSimulation::new);
+
+    public ReplayVerifier() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ReplayVerifier(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public ReplayVerificationResult[] verify(ReplayClaim... claims) throws IOException {
+        GameLevel[] levels = loadLevels(claims);
+        ReplayVerificationResult[] results = new ReplayVerificationResult[claims.length];
+        pool.invoke(new VerifyTask(claims, levels, results, 0, claims.length));
+        return results;
+    }
+
+    private static GameLevel[] loadLevels(ReplayClaim[] claims) throws IOException {
+        ObjectMap<String, GameLevel> loadedLevels = new ObjectMap<>();
+        GameLevel[] levels = new GameLevel[claims.length];
+        for (int i = 0; i < claims.length; i++) {
+            String path = claims[i].getLevelFile().path();
+            GameLevel gameLevel = loadedLevels.get(path);
+            if (gameLevel == null) {
+                gameLevel = GameLevel.loadGameLevel(claims[i].getLevelFile());
+                loadedLevels.put(path, gameLevel);
+            }
+            levels[i] = gameLevel;
+        }
+        return levels;
+    }
+
+    private ReplayVerificationResult verify(ReplayClaim claim, GameLevel gameLevel) {
+        LevelSimulation simulation = simulations.get();
+        FinishReason finishReason = ReplayPlayer.play(simulation, gameLevel, claim.getReplay());
+        return new ReplayVerificationResult(claim, finishReason, simulation.getTickCount(), simulation.getCollectablesCollected());
+    }
+
+    private class VerifyTask extends RecursiveAction {
+        private final ReplayClaim[] claims;
+        private final GameLevel[] levels;
+        private final ReplayVerificationResult[] results;
+        private final int from;
+        private final int to;
+
+        private VerifyTask(ReplayClaim[] claims, GameLevel[] levels, ReplayVerificationResult[] results, int from, int to) {
+            this.claims = claims;
+            this.levels = levels;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH_SIZE) {
+                for (int i = from; i < to; i++)
+                    results[i] = verify(claims[i], levels[i]);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                        new VerifyTask(claims, levels, results, from, middle),
+                        new VerifyTask(claims, levels, results, middle, to));
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.gempukku.gdx.jam20.level.simulation;
+
+public enum FinishReason {
+    Success("Congratulations!", false),
+    Run_Out_Of_Time("You've run out of time", true),
+    Killed_By_Enemy("Fox got to you first", true),
+    Crushed_By_Rock("You've been crushed by rock", true);
+
+    private String text;
+    private boolean retry;
+
+    FinishReason(String text, boolean retry) {
+        this.text = text;
+        this.retry = retry;
+    }
+
+    public boolean isRetry() {
+        return retry;
+    }
+
+    public String getText() {
+        return text;
+    }
+}
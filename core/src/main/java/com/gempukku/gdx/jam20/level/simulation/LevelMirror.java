@@ -0,0 +1,152 @@
+package com.gempukku.gdx.jam20.level.simulation;
+
+import com.gempukku.gdx.jam20.level.LevelObject;
+import com.gempukku.gdx.jam20.level.system.InputSystem;
+
+/**
+ * Copy of the level state, kept up to date by applying {@link SimulationChanges} published by a simulation running on
+ * another thread. Changes are passed on to the listener after the mirrored cells are updated, the same way
+ * {@link LevelSimulation} reports them.
+ */
+public class LevelMirror implements LevelState, LevelSimulationListener {
+    private final LevelSimulationListener listener;
+
+    private int width;
+    private int height;
+    private byte[] cells = new byte[0];
+    private int playerX;
+    private int playerY;
+    private int collectablesCollected;
+    private FinishReason finishReason;
+    private long tickCount;
+    private double time;
+    private long tickNanoTime;
+
+    public LevelMirror(LevelSimulationListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Copies the state of the simulation, it must not be running at that time.
+     */
+    public void loadLevel(LevelSimulation simulation) {
+        width = simulation.getWidth();
+        height = simulation.getHeight();
+        int size = width * height;
+        if (cells.length < size)
+            cells = new byte[size];
+        System.arraycopy(simulation.getCells(), 0, cells, 0, size);
+        playerX = simulation.getPlayerX();
+        playerY = simulation.getPlayerY();
+        collectablesCollected = simulation.getCollectablesCollected();
+        finishReason = simulation.getFinishReason();
+        tickCount = simulation.getTickCount();
+        time = 0;
+        tickNanoTime = System.nanoTime();
+    }
+
+    public void applyChanges(SimulationChanges changes) {
+        changes.replay(this);
+        playerX = changes.getPlayerX();
+        playerY = changes.getPlayerY();
+        collectablesCollected = changes.getCollectablesCollected();
+        finishReason = changes.getFinishReason();
+        tickCount = changes.getTickCount();
+        time = changes.getTime();
+        tickNanoTime = changes.getTickNanoTime();
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public LevelObject getObjectAt(int x, int y) {
+        return LevelObject.fromCode(cells[y * width + x]);
+    }
+
+    @Override
+    public int getPlayerX() {
+        return playerX;
+    }
+
+    @Override
+    public int getPlayerY() {
+        return playerY;
+    }
+
+    @Override
+    public int getCollectablesCollected() {
+        return collectablesCollected;
+    }
+
+    @Override
+    public FinishReason getFinishReason() {
+        return finishReason;
+    }
+
+    @Override
+    public boolean isFinished() {
+        return finishReason != null;
+    }
+
+    @Override
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * Returns the time of the level at the last applied tick.
+     */
+    public double getTime() {
+        return time;
+    }
+
+    /**
+     * Returns the value of {@link System#nanoTime()} at which the last applied tick was due.
+     */
+    public long getTickNanoTime() {
+        return tickNanoTime;
+    }
+
+    @Override
+    public void objectMoved(int fromX, int fromY, int toX, int toY) {
+        moveCell(fromX, fromY, toX, toY);
+        listener.objectMoved(fromX, fromY, toX, toY);
+    }
+
+    @Override
+    public void playerMoved(InputSystem.Direction direction, int fromX, int fromY, int toX, int toY) {
+        moveCell(fromX, fromY, toX, toY);
+        listener.playerMoved(direction, fromX, fromY, toX, toY);
+    }
+
+    @Override
+    public void objectRemoved(LevelObject levelObject, int x, int y) {
+        cells[y * width + x] = LevelObject.Air.getCode();
+        listener.objectRemoved(levelObject, x, y);
+    }
+
+    @Override
+    public void objectSpawned(LevelObject levelObject, int x, int y) {
+        cells[y * width + x] = levelObject.getCode();
+        listener.objectSpawned(levelObject, x, y);
+    }
+
+    @Override
+    public void eventOccurred(SimulationEvent event) {
+        listener.eventOccurred(event);
+    }
+
+    private void moveCell(int fromX, int fromY, int toX, int toY) {
+        int fromIndex = fromY * width + fromX;
+        cells[toY * width + toX] = cells[fromIndex];
+        cells[fromIndex] = LevelObject.Air.getCode();
+    }
+}
@@ -0,0 +1,491 @@
+package com.gempukku.gdx.jam20.level.simulation;
+
+import com.gempukku.gdx.jam20.level.GameLevel;
+import com.gempukku.gdx.jam20.level.LevelObject;
+import com.gempukku.gdx.jam20.level.system.InputSystem;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static com.gempukku.gdx.jam20.level.system.InputSystem.Direction.*;
+
+/**
+ * Game rules of a level, independent of rendering, sound and input. Level is advanced one major tick at a time
+ * by calling {@link #tick(InputSystem.Direction)}, all the changes are reported to {@link LevelSimulationListener}.
+ * <p>
+ * Levels are always surrounded by walls, so the neighbours of any moving object are within the grid.
+ */
+public class LevelSimulation implements LevelState {
+    private static final InputSystem.Direction[] DIRECTIONS = InputSystem.Direction.values();
+    // Tables indexed by the ordinal of a direction
+    private static final int UP = Up.ordinal();
+    private static final int[] DIRECTION_X = new int[DIRECTIONS.length];
+    private static final int[] DIRECTION_Y = new int[DIRECTIONS.length];
+    // Directions in clockwise order
+    private static final int[] NEXT_DIRECTION = new int[DIRECTIONS.length];
+    private static final int[] PREVIOUS_DIRECTION = new int[DIRECTIONS.length];
+
+    static {
+        InputSystem.Direction[] clockwise = {Up, Right, Down, Left};
+        for (int i = 0; i < clockwise.length; i++) {
+            int direction = clockwise[i].ordinal();
+            DIRECTION_X[direction] = clockwise[i].getX();
+            DIRECTION_Y[direction] = clockwise[i].getY();
+            NEXT_DIRECTION[direction] = clockwise[(i + 1) % clockwise.length].ordinal();
+            PREVIOUS_DIRECTION[direction] = clockwise[(i + clockwise.length - 1) % clockwise.length].ordinal();
+        }
+    }
+
+    private static final byte AIR = LevelObject.Air.getCode();
+    private static final byte DIRT = LevelObject.Dirt.getCode();
+    private static final byte GRUB = LevelObject.Grub.getCode();
+    private static final byte EXIT_INACTIVE = LevelObject.Exit_Inactive.getCode();
+    private static final byte EXIT_ACTIVE = LevelObject.Exit_Active.getCode();
+    private static final byte STONE = LevelObject.Stone.getCode();
+    private static final byte PLAYER = LevelObject.Player.getCode();
+    private static final byte FOX = LevelObject.Fox.getCode();
+    private static final LevelSimulationListener NO_OP_LISTENER = new LevelSimulationListener() {
+        @Override
+        public void objectMoved(int fromX, int fromY, int toX, int toY) {
+        }
+
+        @Override
+        public void playerMoved(InputSystem.Direction direction, int fromX, int fromY, int toX, int toY) {
+        }
+
+        @Override
+        public void objectRemoved(LevelObject levelObject, int x, int y) {
+        }
+
+        @Override
+        public void objectSpawned(LevelObject levelObject, int x, int y) {
+        }
+
+        @Override
+        public void eventOccurred(SimulationEvent event) {
+        }
+    };
+
+    private int width;
+    private int height;
+    private byte[] cells = new byte[0];
+    // Index of the stone or fox in its table, for each cell containing one
+    private int[] cellObjects = new int[0];
+    // Both tables are kept in the order in which the objects appear in the level data
+    private final MobileObjectTable stones = new MobileObjectTable();
+    private final MobileObjectTable foxes = new MobileObjectTable();
+    // Indices of stones, that could move in the next tick. Stone is put to sleep once it stays still, and is woken
+    // up when any of the cells it depends on changes.
+    private final BitSet activeStones = new BitSet();
+
+    private int playerX;
+    private int playerY;
+    private int exitX;
+    private int exitY;
+    private boolean hasExit;
+
+    private int requiredCollectables;
+    private int collectablesCollected;
+    private long tickCount;
+    // Number of objects moved in the last tick
+    private int stonesMoved;
+    private int foxesMoved;
+    private FinishReason finishReason;
+
+    private LevelSimulationListener listener = NO_OP_LISTENER;
+
+    public void setListener(LevelSimulationListener listener) {
+        this.listener = (listener != null) ? listener : NO_OP_LISTENER;
+    }
+
+    public void loadLevel(GameLevel gameLevel) {
+        width = gameLevel.getWidth();
+        height = gameLevel.getHeight();
+        int size = width * height;
+        if (cells.length < size)
+            cells = new byte[size];
+        System.arraycopy(gameLevel.getLevelData().getCells(), 0, cells, 0, size);
+        if (cellObjects.length < size)
+            cellObjects = new int[size];
+
+        stones.clear();
+        foxes.clear();
+        hasExit = false;
+        requiredCollectables = gameLevel.getRequiredCollectables();
+        collectablesCollected = 0;
+        tickCount = 0;
+        stonesMoved = 0;
+        foxesMoved = 0;
+        finishReason = null;
+
+        // Objects are processed in the order they appear in the level data, top row first
+        for (int y = height - 1; y >= 0; y--) {
+            for (int x = 0; x < width; x++) {
+                int index = y * width + x;
+                byte cell = cells[index];
+                if (cell == PLAYER) {
+                    playerX = x;
+                    playerY = y;
+                } else if (cell == EXIT_INACTIVE) {
+                    if (!hasExit) {
+                        exitX = x;
+                        exitY = y;
+                        hasExit = true;
+                    }
+                } else if (cell == STONE) {
+                    cellObjects[index] = stones.add(x, y, UP, 0);
+                } else if (cell == FOX) {
+                    cellObjects[index] = foxes.add(x, y, UP, 0);
+                }
+            }
+        }
+
+        activeStones.clear();
+        activeStones.set(0, stones.size);
+    }
+
+    /**
+     * Copies the complete state of the level, so that it can be restored later.
+     */
+    public LevelSnapshot createSnapshot() {
+        int[] stoneStates = new int[stones.size];
+        for (int i = 0; i < stones.size; i++)
+            stoneStates[i] = ((stones.y[i] * width + stones.x[i]) << 1) | (stones.flags[i] & MobileObjectTable.FLAG_FALLING);
+        int[] foxStates = new int[foxes.size];
+        for (int i = 0; i < foxes.size; i++)
+            foxStates[i] = ((foxes.y[i] * width + foxes.x[i]) << 2) | foxes.direction[i];
+        return new LevelSnapshot(width, height, Arrays.copyOf(cells, width * height), stoneStates, foxStates,
+                activeStones.toLongArray(), playerX, playerY, exitX, exitY, hasExit,
+                requiredCollectables, collectablesCollected, tickCount, finishReason);
+    }
+
+    /**
+     * Restores the state of the level from the snapshot, reusing the buffers of this simulation.
+     */
+    public void restoreSnapshot(LevelSnapshot snapshot) {
+        width = snapshot.width;
+        height = snapshot.height;
+        int size = width * height;
+        if (cells.length < size)
+            cells = new byte[size];
+        System.arraycopy(snapshot.cells, 0, cells, 0, size);
+
+        if (cellObjects.length < size)
+            cellObjects = new int[size];
+        stones.clear();
+        for (int i = 0; i < snapshot.stones.length; i++) {
+            int index = snapshot.stones[i] >>> 1;
+            cellObjects[index] = stones.add(index % width, index / width, UP, snapshot.stones[i] & MobileObjectTable.FLAG_FALLING);
+        }
+        foxes.clear();
+        for (int i = 0; i < snapshot.foxes.length; i++) {
+            int index = snapshot.foxes[i] >>> 2;
+            cellObjects[index] = foxes.add(index % width, index / width, snapshot.foxes[i] & 3, 0);
+        }
+
+        activeStones.clear();
+        activeStones.or(BitSet.valueOf(snapshot.activeStones));
+
+        playerX = snapshot.playerX;
+        playerY = snapshot.playerY;
+        exitX = snapshot.exitX;
+        exitY = snapshot.exitY;
+        hasExit = snapshot.hasExit;
+        requiredCollectables = snapshot.requiredCollectables;
+        collectablesCollected = snapshot.collectablesCollected;
+        tickCount = snapshot.tickCount;
+        finishReason = snapshot.finishReason;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    byte[] getCells() {
+        return cells;
+    }
+
+    @Override
+    public LevelObject getObjectAt(int x, int y) {
+        return LevelObject.fromCode(cells[y * width + x]);
+    }
+
+    public byte getCell(int x, int y) {
+        return cells[y * width + x];
+    }
+
+    @Override
+    public int getPlayerX() {
+        return playerX;
+    }
+
+    @Override
+    public int getPlayerY() {
+        return playerY;
+    }
+
+    public int getRequiredCollectables() {
+        return requiredCollectables;
+    }
+
+    @Override
+    public int getCollectablesCollected() {
+        return collectablesCollected;
+    }
+
+    public int getActiveStoneCount() {
+        return activeStones.cardinality();
+    }
+
+    @Override
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    @Override
+    public FinishReason getFinishReason() {
+        return finishReason;
+    }
+
+    /**
+     * Returns the number of stones moved in the last tick, including the ones pushed by the player.
+     */
+    public int getStonesMoved() {
+        return stonesMoved;
+    }
+
+    /**
+     * Returns the number of foxes moved in the last tick.
+     */
+    public int getFoxesMoved() {
+        return foxesMoved;
+    }
+
+    @Override
+    public boolean isFinished() {
+        return finishReason != null;
+    }
+
+    public void runOutOfTime() {
+        finishReason = FinishReason.Run_Out_Of_Time;
+    }
+
+    /**
+     * Processes one major tick of the level.
+     *
+     * @param direction direction requested by the player, or null if the player does not move
+     */
+    public void tick(InputSystem.Direction direction) {
+        if (finishReason != null)
+            return;
+
+        tickCount++;
+        stonesMoved = 0;
+        foxesMoved = 0;
+        if (direction != null)
+            processPlayerMovement(direction);
+        checkForPlayerDeath();
+        processEnemies();
+        checkForPlayerDeath();
+        processStones();
+        foxes.compact(cellObjects, width);
+    }
+
+    private void checkForPlayerDeath() {
+        if (finishReason == null) {
+            for (InputSystem.Direction value : DIRECTIONS) {
+                if ((LevelObject.getProperties(cells[(playerY + value.getY()) * width + playerX + value.getX()]) & LevelObject.TOXIC_TO_PLAYER) != 0) {
+                    finishReason = FinishReason.Killed_By_Enemy;
+                }
+            }
+        }
+    }
+
+    private void processEnemies() {
+        int[] foxX = foxes.x;
+        int[] foxY = foxes.y;
+        int[] foxDirection = foxes.direction;
+        for (int i = 0; i < foxes.size; i++) {
+            int x = foxX[i];
+            int y = foxY[i];
+            // Fox under a stone stops the movement of all the remaining foxes in this tick
+            if (cells[(y + 1) * width + x] == STONE)
+                break;
+
+            int firstDirection = PREVIOUS_DIRECTION[foxDirection[i]];
+            int checkDirection = firstDirection;
+
+            do {
+                int nextX = x + DIRECTION_X[checkDirection];
+                int nextY = y + DIRECTION_Y[checkDirection];
+
+                if (cells[nextY * width + nextX] == AIR) {
+                    moveObject(foxes, i, nextX, nextY);
+                    foxDirection[i] = checkDirection;
+                    break;
+                }
+                checkDirection = NEXT_DIRECTION[checkDirection];
+            } while (checkDirection != firstDirection);
+        }
+    }
+
+    private void processStones() {
+        int[] stoneX = stones.x;
+        int[] stoneY = stones.y;
+        int[] stoneFlags = stones.flags;
+        // Stones woken up during this loop are still processed in this tick, if they come after the current one
+        for (int i = activeStones.nextSetBit(0); i >= 0; i = activeStones.nextSetBit(i + 1)) {
+            int belowX = stoneX[i];
+            int belowY = stoneY[i] - 1;
+            int belowIndex = belowY * width + belowX;
+
+            byte cellBelow = cells[belowIndex];
+            if ((LevelObject.getProperties(cellBelow) & LevelObject.CAN_BE_CRUSHED) != 0) {
+                // Player can only be crushed by already falling stone
+                if ((stoneFlags[i] & MobileObjectTable.FLAG_FALLING) != 0 || cellBelow != PLAYER) {
+                    processStoneCrushedObject(cellBelow, belowX, belowY);
+                    cellBelow = cells[belowIndex];
+                }
+            }
+
+            boolean falling = false;
+            if (cellBelow == AIR) {
+                moveObject(stones, i, belowX, belowY);
+                falling = true;
+            } else if (cells[belowIndex + 1] == AIR && cells[belowIndex + 1 + width] == AIR) {
+                moveObject(stones, i, belowX + 1, belowY);
+                falling = true;
+            } else if (cells[belowIndex - 1] == AIR && cells[belowIndex - 1 + width] == AIR) {
+                moveObject(stones, i, belowX - 1, belowY);
+                falling = true;
+            }
+            if (falling) {
+                stoneFlags[i] |= MobileObjectTable.FLAG_FALLING;
+            } else {
+                stoneFlags[i] &= ~MobileObjectTable.FLAG_FALLING;
+                activeStones.clear(i);
+            }
+        }
+    }
+
+    private void processStoneCrushedObject(byte cell, int x, int y) {
+        if (cell == PLAYER) {
+            finishReason = FinishReason.Crushed_By_Rock;
+            listener.eventOccurred(SimulationEvent.PlayerCrushed);
+        } else if (cell == FOX) {
+            foxes.remove(cellObjects[y * width + x]);
+            removeObject(x, y);
+            listener.eventOccurred(SimulationEvent.FoxCrushed);
+        }
+    }
+
+    private void processPlayerMovement(InputSystem.Direction direction) {
+        int newX = playerX + direction.getX();
+        int newY = playerY + direction.getY();
+
+        byte cellAtPosition = cells[newY * width + newX];
+        int properties = LevelObject.getProperties(cellAtPosition);
+        if ((properties & LevelObject.CAN_BE_ENTERED) != 0) {
+            if (cellAtPosition != AIR)
+                processPlayerEntering(cellAtPosition, newX, newY);
+            movePlayer(direction, newX, newY);
+        } else if ((properties & LevelObject.CAN_BE_MOVED) != 0 &&
+                (direction == Left || direction == Right)) {
+            int otherX = newX + direction.getX();
+            int otherY = newY + direction.getY();
+            if (cells[otherY * width + otherX] == AIR) {
+                moveObject(stones, cellObjects[newY * width + newX], otherX, otherY);
+                movePlayer(direction, newX, newY);
+            }
+        }
+    }
+
+    private void processPlayerEntering(byte cell, int x, int y) {
+        if (cell == DIRT) {
+            removeObject(x, y);
+            listener.eventOccurred(SimulationEvent.DirtEaten);
+        } else if (cell == GRUB) {
+            removeObject(x, y);
+            listener.eventOccurred(SimulationEvent.GrubEaten);
+            collectablesCollected++;
+            updateCollectablesCount();
+        } else if (cell == EXIT_ACTIVE) {
+            removeObject(x, y);
+            listener.eventOccurred(SimulationEvent.ExitEntered);
+            finishReason = FinishReason.Success;
+        }
+    }
+
+    private void updateCollectablesCount() {
+        if (collectablesCollected == requiredCollectables && hasExit) {
+            removeObject(exitX, exitY);
+            cells[exitY * width + exitX] = EXIT_ACTIVE;
+            listener.objectSpawned(LevelObject.Exit_Active, exitX, exitY);
+            listener.eventOccurred(SimulationEvent.ExitOpened);
+        }
+    }
+
+    private void movePlayer(InputSystem.Direction direction, int x, int y) {
+        int fromX = playerX;
+        int fromY = playerY;
+        int fromIndex = fromY * width + fromX;
+        int toIndex = y * width + x;
+        cells[fromIndex] = AIR;
+        cells[toIndex] = PLAYER;
+        playerX = x;
+        playerY = y;
+        cellChanged(fromIndex);
+        cellChanged(toIndex);
+        listener.playerMoved(direction, fromX, fromY, x, y);
+    }
+
+    private void moveObject(MobileObjectTable table, int object, int x, int y) {
+        int fromX = table.x[object];
+        int fromY = table.y[object];
+        int fromIndex = fromY * width + fromX;
+        int toIndex = y * width + x;
+        cells[toIndex] = cells[fromIndex];
+        cells[fromIndex] = AIR;
+        cellObjects[toIndex] = object;
+        table.x[object] = x;
+        table.y[object] = y;
+        if (table == stones)
+            stonesMoved++;
+        else
+            foxesMoved++;
+        cellChanged(fromIndex);
+        cellChanged(toIndex);
+        listener.objectMoved(fromX, fromY, x, y);
+    }
+
+    private void removeObject(int x, int y) {
+        int index = y * width + x;
+        byte cell = cells[index];
+        cells[index] = AIR;
+        cellChanged(index);
+        listener.objectRemoved(LevelObject.fromCode(cell), x, y);
+    }
+
+    /**
+     * Wakes up stones, whose movement depends on the cell - the ones above it, diagonally above it and next to it.
+     */
+    private void cellChanged(int index) {
+        wakeStone(index - 1);
+        wakeStone(index + 1);
+        wakeStone(index + width - 1);
+        wakeStone(index + width);
+        wakeStone(index + width + 1);
+    }
+
+    private void wakeStone(int index) {
+        if (cells[index] == STONE)
+            activeStones.set(cellObjects[index]);
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.gempukku.gdx.jam20.level.simulation;
+
+import com.gempukku.gdx.jam20.level.LevelObject;
+import com.gempukku.gdx.jam20.level.system.InputSystem;
+
+public interface LevelSimulationListener {
+    void objectMoved(int fromX, int fromY, int toX, int toY);
+
+    void playerMoved(InputSystem.Direction direction, int fromX, int fromY, int toX, int toY);
+
+    void objectRemoved(LevelObject levelObject, int x, int y);
+
+    void objectSpawned(LevelObject levelObject, int x, int y);
+
+    void eventOccurred(SimulationEvent event);
+}
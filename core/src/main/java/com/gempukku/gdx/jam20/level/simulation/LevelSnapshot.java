@@ -0,0 +1,136 @@
+package com.gempukku.gdx.jam20.level.simulation;
+
+/**
+ * Copy of the complete state of a {@link LevelSimulation}, that can be restored into any simulation.
+ */
+public class LevelSnapshot {
+    final int width;
+    final int height;
+    final byte[] cells;
+    // Cell index of each stone shifted left by one, lowest bit set if the stone is falling
+    final int[] stones;
+    // Cell index of each fox shifted left by two, lowest two bits are the direction of its last move
+    final int[] foxes;
+    final long[] activeStones;
+    final int playerX;
+    final int playerY;
+    final int exitX;
+    final int exitY;
+    final boolean hasExit;
+    final int requiredCollectables;
+    final int collectablesCollected;
+    final long tickCount;
+    final FinishReason finishReason;
+
+    LevelSnapshot(int width, int height, byte[] cells, int[] stones, int[] foxes, long[] activeStones,
+                  int playerX, int playerY, int exitX, int exitY, boolean hasExit,
+                  int requiredCollectables, int collectablesCollected, long tickCount, FinishReason finishReason) {
+        this.width = width;
+        this.height = height;
+        this.cells = cells;
+        this.stones = stones;
+        this.foxes = foxes;
+        this.activeStones = activeStones;
+        this.playerX = playerX;
+        this.playerY = playerY;
+        this.exitX = exitX;
+        this.exitY = exitY;
+        this.hasExit = hasExit;
+        this.requiredCollectables = requiredCollectables;
+        this.collectablesCollected = collectablesCollected;
+        this.tickCount = tickCount;
+        this.finishReason = finishReason;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public byte getCell(int index) {
+        return cells[index];
+    }
+
+    public int getStoneCount() {
+        return stones.length;
+    }
+
+    public int getStoneCell(int stone) {
+        return stones[stone] >>> 1;
+    }
+
+    public boolean isStoneFalling(int stone) {
+        return (stones[stone] & 1) != 0;
+    }
+
+    /**
+     * Returns the first stone from the specified one on, that is processed in the next tick, or -1 if there is none.
+     * Falling stones are always among them.
+     */
+    public int nextActiveStone(int stone) {
+        int word = stone >>> 6;
+        if (word >= activeStones.length)
+            return -1;
+        long bits = activeStones[word] & (-1L << stone);
+        while (bits == 0) {
+            if (++word == activeStones.length)
+                return -1;
+            bits = activeStones[word];
+        }
+        return word * 64 + Long.numberOfTrailingZeros(bits);
+    }
+
+    public int getFoxCount() {
+        return foxes.length;
+    }
+
+    public int getFoxCell(int fox) {
+        return foxes[fox] >>> 2;
+    }
+
+    /**
+     * Returns the ordinal of the direction of the last move of the fox.
+     */
+    public int getFoxLastMove(int fox) {
+        return foxes[fox] & 3;
+    }
+
+    public int getPlayerX() {
+        return playerX;
+    }
+
+    public int getPlayerY() {
+        return playerY;
+    }
+
+    public boolean hasExit() {
+        return hasExit;
+    }
+
+    public int getExitX() {
+        return exitX;
+    }
+
+    public int getExitY() {
+        return exitY;
+    }
+
+    public int getRequiredCollectables() {
+        return requiredCollectables;
+    }
+
+    public int getCollectablesCollected() {
+        return collectablesCollected;
+    }
+
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    public FinishReason getFinishReason() {
+        return finishReason;
+    }
+}
@@ -0,0 +1,26 @@
+package com.gempukku.gdx.jam20.level.simulation;
+
+import com.gempukku.gdx.jam20.level.LevelObject;
+
+/**
+ * State of a level, as needed to render it.
+ */
+public interface LevelState {
+    int getWidth();
+
+    int getHeight();
+
+    LevelObject getObjectAt(int x, int y);
+
+    int getPlayerX();
+
+    int getPlayerY();
+
+    int getCollectablesCollected();
+
+    long getTickCount();
+
+    FinishReason getFinishReason();
+
+    boolean isFinished();
+}
@@ -0,0 +1,69 @@
+package com.gempukku.gdx.jam20.level.simulation;
+
+import java.util.Arrays;
+
+/**
+ * Objects of one mobile type stored as parallel arrays, in the order they are processed. Removed objects are only
+ * flagged, and dropped from the arrays by {@link #compact(int[], int)}.
+ */
+class MobileObjectTable {
+    static final int FLAG_FALLING = 1;
+    static final int FLAG_REMOVED = 2;
+
+    int size;
+    int[] x = new int[16];
+    int[] y = new int[16];
+    // Ordinal of the direction of the last move
+    int[] direction = new int[16];
+    int[] flags = new int[16];
+    private int removedCount;
+
+    void clear() {
+        size = 0;
+        removedCount = 0;
+    }
+
+    int add(int objectX, int objectY, int objectDirection, int objectFlags) {
+        if (size == x.length) {
+            int capacity = size * 2;
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            direction = Arrays.copyOf(direction, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+        }
+        x[size] = objectX;
+        y[size] = objectY;
+        direction[size] = objectDirection;
+        flags[size] = objectFlags;
+        return size++;
+    }
+
+    void remove(int index) {
+        flags[index] |= FLAG_REMOVED;
+        removedCount++;
+    }
+
+    /**
+     * Drops the removed objects, keeping the order of the remaining ones, and updates their indices in the cells.
+     */
+    void compact(int[] cellObjects, int levelWidth) {
+        if (removedCount == 0)
+            return;
+
+        int newSize = 0;
+        for (int i = 0; i < size; i++) {
+            if ((flags[i] & FLAG_REMOVED) == 0) {
+                if (newSize != i) {
+                    x[newSize] = x[i];
+                    y[newSize] = y[i];
+                    direction[newSize] = direction[i];
+                    flags[newSize] = flags[i];
+                    cellObjects[y[i] * levelWidth + x[i]] = newSize;
+                }
+                newSize++;
+            }
+        }
+        size = newSize;
+        removedCount = 0;
+    }
+}
@@ -0,0 +1,140 @@
+package com.gempukku.gdx.jam20.level.simulation;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.gempukku.gdx.jam20.level.LevelObject;
+import com.gempukku.gdx.jam20.level.system.InputSystem;
+
+/**
+ * Changes reported by {@link LevelSimulation} over one or more ticks, together with the state of the level after the
+ * last of them. Changes are stored as numbers, so recording them does not allocate, once the buffer is big enough.
+ */
+public class SimulationChanges implements LevelSimulationListener {
+    private static final InputSystem.Direction[] DIRECTIONS = InputSystem.Direction.values();
+    private static final LevelObject[] LEVEL_OBJECTS = LevelObject.values();
+    private static final SimulationEvent[] EVENTS = SimulationEvent.values();
+
+    private static final int OBJECT_MOVED = 0;
+    private static final int PLAYER_MOVED = 1;
+    private static final int OBJECT_REMOVED = 2;
+    private static final int OBJECT_SPAWNED = 3;
+    private static final int EVENT_OCCURRED = 4;
+
+    private final IntArray changes = new IntArray(256);
+
+    private long tickCount;
+    private double time;
+    private long tickNanoTime;
+    private int playerX;
+    private int playerY;
+    private int collectablesCollected;
+    private FinishReason finishReason;
+
+    /**
+     * Stores the state of the level after the recorded changes.
+     *
+     * @param time         time of the level at the last tick
+     * @param tickNanoTime value of {@link System#nanoTime()} at which the last tick was due
+     */
+    public void captureState(LevelSimulation simulation, double time, long tickNanoTime) {
+        this.tickCount = simulation.getTickCount();
+        this.time = time;
+        this.tickNanoTime = tickNanoTime;
+        this.playerX = simulation.getPlayerX();
+        this.playerY = simulation.getPlayerY();
+        this.collectablesCollected = simulation.getCollectablesCollected();
+        this.finishReason = simulation.getFinishReason();
+    }
+
+    /**
+     * Reports the recorded changes to the listener, in the order in which they happened.
+     */
+    public void replay(LevelSimulationListener listener) {
+        int[] items = changes.items;
+        int index = 0;
+        while (index < changes.size) {
+            switch (items[index]) {
+                case OBJECT_MOVED:
+                    listener.objectMoved(items[index + 1], items[index + 2], items[index + 3], items[index + 4]);
+                    index += 5;
+                    break;
+                case PLAYER_MOVED:
+                    listener.playerMoved(DIRECTIONS[items[index + 1]], items[index + 2], items[index + 3], items[index + 4], items[index + 5]);
+                    index += 6;
+                    break;
+                case OBJECT_REMOVED:
+                    listener.objectRemoved(LEVEL_OBJECTS[items[index + 1]], items[index + 2], items[index + 3]);
+                    index += 4;
+                    break;
+                case OBJECT_SPAWNED:
+                    listener.objectSpawned(LEVEL_OBJECTS[items[index + 1]], items[index + 2], items[index + 3]);
+                    index += 4;
+                    break;
+                case EVENT_OCCURRED:
+                    listener.eventOccurred(EVENTS[items[index + 1]]);
+                    index += 2;
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown type of change: " + items[index]);
+            }
+        }
+    }
+
+    public void clear() {
+        changes.clear();
+    }
+
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    public double getTime() {
+        return time;
+    }
+
+    public long getTickNanoTime() {
+        return tickNanoTime;
+    }
+
+    public int getPlayerX() {
+        return playerX;
+    }
+
+    public int getPlayerY() {
+        return playerY;
+    }
+
+    public int getCollectablesCollected() {
+        return collectablesCollected;
+    }
+
+    public FinishReason getFinishReason() {
+        return finishReason;
+    }
+
+    @Override
+    public void objectMoved(int fromX, int fromY, int toX, int toY) {
+        changes.add(OBJECT_MOVED, fromX, fromY, toX);
+        changes.add(toY);
+    }
+
+    @Override
+    public void playerMoved(InputSystem.Direction direction, int fromX, int fromY, int toX, int toY) {
+        changes.add(PLAYER_MOVED, direction.ordinal(), fromX, fromY);
+        changes.add(toX, toY);
+    }
+
+    @Override
+    public void objectRemoved(LevelObject levelObject, int x, int y) {
+        changes.add(OBJECT_REMOVED, levelObject.ordinal(), x, y);
+    }
+
+    @Override
+    public void objectSpawned(LevelObject levelObject, int x, int y) {
+        changes.add(OBJECT_SPAWNED, levelObject.ordinal(), x, y);
+    }
+
+    @Override
+    public void eventOccurred(SimulationEvent event) {
+        changes.add(EVENT_OCCURRED, event.ordinal());
+    }
+}
@@ -0,0 +1,10 @@
+package com.gempukku.gdx.jam20.level.simulation;
+
+public enum SimulationEvent {
+    DirtEaten,
+    GrubEaten,
+    ExitOpened,
+    ExitEntered,
+    FoxCrushed,
+    PlayerCrushed
+}
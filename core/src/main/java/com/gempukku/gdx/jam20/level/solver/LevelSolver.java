@@ -0,0 +1,452 @@
+package com.gempukku.gdx.jam20.level.solver;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.gempukku.gdx.jam20.level.BinaryLevelFormat;
+import com.gempukku.gdx.jam20.level.GameLevel;
+import com.gempukku.gdx.jam20.level.LevelObject;
+import com.gempukku.gdx.jam20.level.replay.ReplayPlayer;
+import com.gempukku.gdx.jam20.level.simulation.FinishReason;
+import com.gempukku.gdx.jam20.level.simulation.LevelSimulation;
+import com.gempukku.gdx.jam20.level.simulation.LevelSimulationListener;
+import com.gempukku.gdx.jam20.level.simulation.LevelSnapshot;
+import com.gempukku.gdx.jam20.level.simulation.SimulationEvent;
+import com.gempukku.gdx.jam20.level.system.InputSystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Searches for a sequence of player moves, that finishes a level successfully.
+ * <p>
+ * Search is a beam search over the states of {@link LevelSimulation}, one layer per major tick. All the states of
+ * a layer are expanded in parallel on a fork-join pool, then the best scoring states, that have not been visited
+ * before, form the next layer. Visited states are identified by their Zobrist hash in a {@link TranspositionTable}.
+ * Hash of the cells of a state is derived from its parent, only the cells changed by the tick are hashed again.
+ * States score better with more grubs collected and the player closer to the nearest grub, or to the exit once it
+ * opens. Number of states kept for the same player position is limited, to keep the layers varied.
+ * <p>
+ * A solver runs one search at a time.
+ */
+public class LevelSolver {
+    public static final int DEFAULT_BEAM_WIDTH = 1024;
+    public static final int DEFAULT_TABLE_CAPACITY = 1 << 22;
+
+    private static final InputSystem.Direction[] MOVES = {
+            null, InputSystem.Direction.Up, InputSystem.Direction.Down, InputSystem.Direction.Right, InputSystem.Direction.Left};
+    // Maximum number of states in a layer with the same player position and number of collected grubs
+    private static final int MAX_STATES_PER_POSITION = 8;
+    // Number of states, that are expanded without splitting the work further
+    private static final int BATCH_SIZE = 16;
+
+    private static final byte AIR = LevelObject.Air.getCode();
+    private static final byte WALL = LevelObject.Wall.getCode();
+    private static final byte GRUB = LevelObject.Grub.getCode();
+
+    private static final long CELL_SALT = 0x5851F42D4C957F2DL;
+    private static final long FALLING_SALT = 0x14057B7EF767814FL;
+    private static final long FOX_SALT = 0x2545F4914F6CDD1DL;
+
+    private static final Comparator<Node> NODE_ORDER = (o1, o2) -> {
+        int result = Integer.compare(o1.score, o2.score);
+        return (result != 0) ? result : Long.compare(o1.hash, o2.hash);
+    };
+
+    private final ForkJoinPool pool;
+    private final int beamWidth;
+    private final TranspositionTable transpositionTable;
+    private final IntIntMap positionCounts = new IntIntMap();
+    private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+
+    public LevelSolver() {
+        this(ForkJoinPool.commonPool(), DEFAULT_BEAM_WIDTH, DEFAULT_TABLE_CAPACITY);
+    }
+
+    public LevelSolver(ForkJoinPool pool, int beamWidth, int tableCapacity) {
+        this.pool = pool;
+        this.beamWidth = beamWidth;
+        this.transpositionTable = new TranspositionTable(tableCapacity);
+    }
+
+    public SolverResult solve(GameLevel gameLevel) {
+        return solve(gameLevel, gameLevel.getMaximumLevelTime() * gameLevel.getTicksPerSecond());
+    }
+
+    /**
+     * Searches for a solution, that finishes the level in at most the specified number of major ticks.
+     */
+    public SolverResult solve(GameLevel gameLevel, int maxTicks) {
+        Worker worker = workers.get();
+        worker.simulation.loadLevel(gameLevel);
+        Node root = worker.createRootNode(worker.simulation.createSnapshot());
+
+        if (getGrubCount(root.snapshot) < gameLevel.getRequiredCollectables())
+            return new SolverResult(SolverResult.Status.Unsolvable, null, 0);
+
+        transpositionTable.clear();
+        transpositionTable.add(root.hash, 0);
+
+        Node[] beam = {root};
+        boolean truncated = false;
+        long statesExpanded = 0;
+        for (int depth = 1; depth <= maxTicks; depth++) {
+            Node[] children = new Node[beam.length * MOVES.length];
+            pool.invoke(new ExpandTask(beam, children, maxTicks, 0, beam.length));
+            statesExpanded += beam.length;
+
+            int childCount = 0;
+            for (Node child : children) {
+                if (child != null) {
+                    if (child.snapshot.getFinishReason() == FinishReason.Success)
+                        return new SolverResult(SolverResult.Status.Solved, getPath(child), statesExpanded);
+                    children[childCount++] = child;
+                }
+            }
+            Arrays.sort(children, 0, childCount, NODE_ORDER);
+
+            // Number of states in the next layer per player position and collected grubs, so that the layer
+            // does not fill up with states differing only in eaten dirt
+            positionCounts.clear();
+            int nextSize = 0;
+            for (int i = 0; i < childCount; i++) {
+                Node child = children[i];
+                if (transpositionTable.contains(child.hash))
+                    continue;
+                int position = child.position;
+                if (nextSize < beamWidth && positionCounts.get(position, 0) < MAX_STATES_PER_POSITION) {
+                    transpositionTable.add(child.hash, depth);
+                    positionCounts.getAndIncrement(position, 0, 1);
+                    children[nextSize++] = child;
+                } else {
+                    truncated = true;
+                    if (nextSize == beamWidth)
+                        break;
+                }
+            }
+
+            if (nextSize == 0)
+                break;
+            beam = Arrays.copyOf(children, nextSize);
+        }
+
+        return new SolverResult(truncated ? SolverResult.Status.Not_Found : SolverResult.Status.Unsolvable, null, statesExpanded);
+    }
+
+    private static int getGrubCount(LevelSnapshot snapshot) {
+        int result = 0;
+        int size = snapshot.getWidth() * snapshot.getHeight();
+        for (int i = 0; i < size; i++) {
+            if (snapshot.getCell(i) == GRUB)
+                result++;
+        }
+        return result;
+    }
+
+    private static InputSystem.Direction[] getPath(Node node) {
+        int length = 0;
+        for (Node step = node; step.parent != null; step = step.parent)
+            length++;
+        InputSystem.Direction[] path = new InputSystem.Direction[length];
+        for (Node step = node; step.parent != null; step = step.parent)
+            path[--length] = step.direction;
+        return path;
+    }
+
+    /**
+     * Zobrist key of a feature of the state. Keys are derived from the feature with SplitMix64 finalizer, instead of
+     * being stored in a table of random numbers.
+     */
+    private static long getKey(long feature) {
+        long z = feature * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private class ExpandTask extends RecursiveAction {
+        private final Node[] beam;
+        private final Node[] children;
+        private final int maxTicks;
+        private final int from;
+        private final int to;
+
+        private ExpandTask(Node[] beam, Node[] children, int maxTicks, int from, int to) {
+            this.beam = beam;
+            this.children = children;
+            this.maxTicks = maxTicks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH_SIZE) {
+                Worker worker = workers.get();
+                LevelSimulation simulation = worker.simulation;
+                for (int i = from; i < to; i++) {
+                    Node node = beam[i];
+                    for (int move = 0; move < MOVES.length; move++) {
+                        simulation.restoreSnapshot(node.snapshot);
+                        worker.clearChangedCells();
+                        simulation.tick(MOVES[move]);
+                        FinishReason finishReason = simulation.getFinishReason();
+                        boolean dead = (finishReason != null && finishReason != FinishReason.Success)
+                                || (finishReason == null && simulation.getTickCount() >= maxTicks);
+                        if (!dead)
+                            children[i * MOVES.length + move] = worker.createNode(node, MOVES[move], simulation.createSnapshot());
+                    }
+                    // Only the path is needed from expanded states
+                    node.snapshot = null;
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                        new ExpandTask(beam, children, maxTicks, from, middle),
+                        new ExpandTask(beam, children, maxTicks, middle, to));
+            }
+        }
+    }
+
+    /**
+     * Simulation and buffers used by a single thread. Collects the cells changed by the simulation, so that the hash
+     * of a state can be updated from its parent.
+     */
+    private static class Worker implements LevelSimulationListener {
+        private final LevelSimulation simulation = new LevelSimulation();
+        private int[] queue = new int[0];
+        private int[] visited = new int[0];
+        private int visitMark;
+        private final int[] neighbourOffsets = new int[4];
+        // Cells changed in the last tick, each one listed once
+        private int[] changedCells = new int[16];
+        private int changedCellCount;
+        private int[] changedMarks = new int[0];
+        private int changeMark;
+
+        private Worker() {
+            simulation.setListener(this);
+        }
+
+        private Node createRootNode(LevelSnapshot snapshot) {
+            int size = snapshot.getWidth() * snapshot.getHeight();
+            long cellHash = 0;
+            for (int i = 0; i < size; i++)
+                cellHash ^= getCellKey(i, snapshot.getCell(i));
+            return createNode(null, null, snapshot, cellHash);
+        }
+
+        private Node createNode(Node parent, InputSystem.Direction direction, LevelSnapshot snapshot) {
+            long cellHash = parent.cellHash;
+            for (int i = 0; i < changedCellCount; i++) {
+                int index = changedCells[i];
+                cellHash ^= getCellKey(index, parent.snapshot.getCell(index)) ^ getCellKey(index, snapshot.getCell(index));
+            }
+            return createNode(parent, direction, snapshot, cellHash);
+        }
+
+        private Node createNode(Node parent, InputSystem.Direction direction, LevelSnapshot snapshot, long cellHash) {
+            long hash = cellHash;
+            for (int i = snapshot.nextActiveStone(0); i >= 0; i = snapshot.nextActiveStone(i + 1)) {
+                if (snapshot.isStoneFalling(i))
+                    hash ^= getKey(FALLING_SALT + snapshot.getStoneCell(i));
+            }
+            for (int i = 0; i < snapshot.getFoxCount(); i++)
+                hash ^= getKey(FOX_SALT + snapshot.getFoxCell(i) * 4L + snapshot.getFoxLastMove(i));
+
+            int size = snapshot.getWidth() * snapshot.getHeight();
+            int remainingCollectables = Math.max(0, snapshot.getRequiredCollectables() - snapshot.getCollectablesCollected());
+            int score = remainingCollectables * size + getTargetDistance(snapshot, remainingCollectables > 0);
+
+            int position = (snapshot.getPlayerY() * snapshot.getWidth() + snapshot.getPlayerX()) * 31 + snapshot.getCollectablesCollected();
+            return new Node(parent, direction, snapshot, cellHash, hash, score, position);
+        }
+
+        private static long getCellKey(int index, byte cell) {
+            return (cell != AIR && cell != WALL) ? getKey(CELL_SALT + index * 16L + cell) : 0;
+        }
+
+        private void clearChangedCells() {
+            changedCellCount = 0;
+            if (++changeMark == 0) {
+                Arrays.fill(changedMarks, 0);
+                changeMark = 1;
+            }
+        }
+
+        private void cellChanged(int x, int y) {
+            int index = y * simulation.getWidth() + x;
+            if (changedMarks.length <= index)
+                changedMarks = Arrays.copyOf(changedMarks, simulation.getWidth() * simulation.getHeight());
+            if (changedMarks[index] == changeMark)
+                return;
+            changedMarks[index] = changeMark;
+            if (changedCellCount == changedCells.length)
+                changedCells = Arrays.copyOf(changedCells, changedCellCount * 2);
+            changedCells[changedCellCount++] = index;
+        }
+
+        @Override
+        public void objectMoved(int fromX, int fromY, int toX, int toY) {
+            cellChanged(fromX, fromY);
+            cellChanged(toX, toY);
+        }
+
+        @Override
+        public void playerMoved(InputSystem.Direction direction, int fromX, int fromY, int toX, int toY) {
+            cellChanged(fromX, fromY);
+            cellChanged(toX, toY);
+        }
+
+        @Override
+        public void objectRemoved(LevelObject levelObject, int x, int y) {
+            cellChanged(x, y);
+        }
+
+        @Override
+        public void objectSpawned(LevelObject levelObject, int x, int y) {
+            cellChanged(x, y);
+        }
+
+        @Override
+        public void eventOccurred(SimulationEvent event) {
+        }
+
+        /**
+         * Returns the length of the shortest path through the cells the player can enter, to the nearest grub, or to
+         * the exit. Returns the number of cells in the level, if there is no such path.
+         */
+        private int getTargetDistance(LevelSnapshot snapshot, boolean toGrub) {
+            int width = snapshot.getWidth();
+            int size = width * snapshot.getHeight();
+            if (queue.length < size) {
+                queue = new int[size];
+                visited = new int[size];
+                visitMark = 0;
+            }
+            if (++visitMark == 0) {
+                Arrays.fill(visited, 0);
+                visitMark = 1;
+            }
+
+            neighbourOffsets[0] = width;
+            neighbourOffsets[1] = -width;
+            neighbourOffsets[2] = 1;
+            neighbourOffsets[3] = -1;
+
+            int exit = snapshot.getExitY() * width + snapshot.getExitX();
+            int start = snapshot.getPlayerY() * width + snapshot.getPlayerX();
+            int head = 0;
+            int tail = 0;
+            int layerEnd = 1;
+            int distance = 0;
+            queue[tail++] = start;
+            visited[start] = visitMark;
+            while (head < tail) {
+                if (head == layerEnd) {
+                    distance++;
+                    layerEnd = tail;
+                }
+                int index = queue[head++];
+                for (int offset : neighbourOffsets) {
+                    int neighbour = index + offset;
+                    if (visited[neighbour] != visitMark) {
+                        visited[neighbour] = visitMark;
+                        byte cell = snapshot.getCell(neighbour);
+                        if (toGrub ? cell == GRUB : neighbour == exit)
+                            return distance + 1;
+                        if ((LevelObject.getProperties(cell) & LevelObject.CAN_BE_ENTERED) != 0)
+                            queue[tail++] = neighbour;
+                    }
+                }
+            }
+            return size;
+        }
+    }
+
+    private static class Node {
+        private final Node parent;
+        private final InputSystem.Direction direction;
+        // Hash of the cells only, children update it with the cells changed by their tick
+        private final long cellHash;
+        private final long hash;
+        private final int score;
+        private final int position;
+        private LevelSnapshot snapshot;
+
+        private Node(Node parent, InputSystem.Direction direction, LevelSnapshot snapshot, long cellHash, long hash,
+                     int score, int position) {
+            this.parent = parent;
+            this.direction = direction;
+            this.snapshot = snapshot;
+            this.cellHash = cellHash;
+            this.hash = hash;
+            this.score = score;
+            this.position = position;
+        }
+    }
+
+    /**
+     * Solves the levels given as arguments, directories are searched for binary levels. Exits with a non-zero status,
+     * if any of the levels was not solved.
+     */
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int beamWidth = DEFAULT_BEAM_WIDTH;
+        boolean allSolved = true;
+
+        ForkJoinPool pool = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--threads")) {
+                    threads = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("--beam")) {
+                    beamWidth = Integer.parseInt(args[++i]);
+                } else {
+                    if (pool == null)
+                        pool = new ForkJoinPool(threads);
+                    LevelSolver solver = new LevelSolver(pool, beamWidth, DEFAULT_TABLE_CAPACITY);
+                    FileHandle fileHandle = new FileHandle(new File(args[i]));
+                    FileHandle[] levelFiles = fileHandle.isDirectory() ? fileHandle.list("." + BinaryLevelFormat.EXTENSION) : new FileHandle[]{fileHandle};
+                    Arrays.sort(levelFiles, Comparator.comparing(FileHandle::path));
+                    for (FileHandle levelFile : levelFiles)
+                        allSolved &= solveAndPrint(solver, levelFile);
+                }
+            }
+        } finally {
+            if (pool != null)
+                pool.shutdown();
+        }
+
+        if (!allSolved)
+            System.exit(1);
+    }
+
+    private static boolean solveAndPrint(LevelSolver solver, FileHandle levelFile) throws IOException {
+        GameLevel gameLevel = GameLevel.loadGameLevel(levelFile);
+        long start = System.currentTimeMillis();
+        SolverResult result = solver.solve(gameLevel);
+        long time = System.currentTimeMillis() - start;
+
+        StringBuilder output = new StringBuilder();
+        output.append(levelFile.path()).append(": ").append(result.getStatus())
+                .append(" (").append(result.getStatesExpanded()).append(" states, ").append(time).append("ms)");
+        boolean solved = result.getStatus() == SolverResult.Status.Solved;
+        if (solved) {
+            // Solution is double-checked by replaying it
+            FinishReason finishReason = ReplayPlayer.play(new LevelSimulation(), gameLevel, result.createReplay(gameLevel.getName()));
+            if (finishReason != FinishReason.Success) {
+                output.append(" - replay of the solution failed: ").append(finishReason);
+                solved = false;
+            }
+            output.append('\n');
+            for (InputSystem.Direction direction : result.getSolution())
+                output.append((direction != null) ? Character.toUpperCase(direction.getName().charAt(0)) : '.');
+        }
+        System.out.println(output);
+        return solved;
+    }
+}
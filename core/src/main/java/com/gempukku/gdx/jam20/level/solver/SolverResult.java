@@ -0,0 +1,49 @@
+package com.gempukku.gdx.jam20.level.solver;
+
+import com.gempukku.gdx.jam20.level.replay.Replay;
+import com.gempukku.gdx.jam20.level.replay.ReplayRecorder;
+import com.gempukku.gdx.jam20.level.system.InputSystem;
+
+public class SolverResult {
+    public enum Status {
+        // Solution has been found
+        Solved,
+        // All the reachable states have been searched without finding a solution
+        Unsolvable,
+        // Search gave up on some states, so the level might still be solvable
+        Not_Found
+    }
+
+    private final Status status;
+    private final InputSystem.Direction[] solution;
+    private final long statesExpanded;
+
+    public SolverResult(Status status, InputSystem.Direction[] solution, long statesExpanded) {
+        this.status = status;
+        this.solution = solution;
+        this.statesExpanded = statesExpanded;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the direction for each major tick (null for no movement), or null if the level was not solved.
+     */
+    public InputSystem.Direction[] getSolution() {
+        return solution;
+    }
+
+    public long getStatesExpanded() {
+        return statesExpanded;
+    }
+
+    public Replay createReplay(String levelName) {
+        ReplayRecorder recorder = new ReplayRecorder();
+        recorder.start(levelName);
+        for (InputSystem.Direction direction : solution)
+            recorder.recordTick(direction);
+        return recorder.createReplay();
+    }
+}
@@ -0,0 +1,60 @@
+package com.gempukku.gdx.jam20.level.solver;
+
+import com.badlogic.gdx.math.MathUtils;
+
+import java.util.Arrays;
+
+/**
+ * Fixed size set of hashes of already visited states. Each hash maps to a bucket of two entries, when both are taken,
+ * the entry of the state found at the lower depth is evicted. Evicted states might be visited again, which only costs
+ * time, not correctness.
+ */
+public class TranspositionTable {
+    private final long[] hashes;
+    private final int[] depths;
+    private final int mask;
+
+    public TranspositionTable(int capacity) {
+        int size = MathUtils.nextPowerOfTwo(Math.max(2, capacity));
+        hashes = new long[size];
+        depths = new int[size];
+        mask = size - 2;
+    }
+
+    public boolean contains(long hash) {
+        if (hash == 0)
+            hash = 1;
+        int first = (int) (hash ^ (hash >>> 32)) & mask;
+        return hashes[first] == hash || hashes[first + 1] == hash;
+    }
+
+    /**
+     * Adds the state to the table.
+     *
+     * @return false if the state has already been visited
+     */
+    public boolean add(long hash, int depth) {
+        // Zero marks an empty entry
+        if (hash == 0)
+            hash = 1;
+        int first = (int) (hash ^ (hash >>> 32)) & mask;
+        int second = first + 1;
+        if (hashes[first] == hash || hashes[second] == hash)
+            return false;
+
+        int replaced;
+        if (hashes[first] == 0)
+            replaced = first;
+        else if (hashes[second] == 0)
+            replaced = second;
+        else
+            replaced = (depths[first] <= depths[second]) ? first : second;
+        hashes[replaced] = hash;
+        depths[replaced] = depth;
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(hashes, 0);
+    }
+}
@@ -2,8 +2,14 @@ package com.gempukku.gdx.jam20.level.system;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
-
-public class InputSystem {
+import com.badlogic.gdx.InputAdapter;
+
+/**
+ * Player input. Direction keys are received as key events, so that presses shorter than a frame or a tick are not
+ * lost. Presses are queued with the time of their key event, each tick uses the oldest press not used yet, or the
+ * held direction, if there is none. Control keys are polled once per frame.
+ */
+public class InputSystem extends InputAdapter {
     public enum Direction {
         Up("up", 0, 1, Input.Keys.UP, Input.Keys.W),
         Down("down", 0, -1, Input.Keys.DOWN, Input.Keys.S),
@@ -39,61 +45,152 @@ public class InputSystem {
         }
     }
 
-    private boolean pauseRequested;
+    public static final long NO_INPUT_TIME = -1;
 
-    private Direction memorizedDirection;
-    private Direction pressedDirection;
-    private boolean pressedSinceReset;
+    private static final Direction[] DIRECTIONS = Direction.values();
+    // Presses not used by a tick yet, further presses are ignored until one is used
+    private static final int MAX_QUEUED_PRESSES = 3;
+
+    private boolean pauseRequested;
+    private boolean profilerToggleRequested;
+    private boolean profilerDumpRequested;
+    private boolean slowerRequested;
+    private boolean fasterRequested;
+    private boolean turboToggleRequested;
+
+    // Keys of each direction held down, a bit per key of the direction
+    private final int[] pressedKeys = new int[DIRECTIONS.length];
+    // Queue of direction presses with the time of the key event, the oldest first
+    private final Direction[] queuedDirections = new Direction[MAX_QUEUED_PRESSES];
+    private final long[] queuedTimes = new long[MAX_QUEUED_PRESSES];
+    private int queueStart;
+    private int queueSize;
 
     public void update() {
         pauseRequested = Gdx.input.isKeyJustPressed(Input.Keys.ESCAPE);
-
-        Direction lastPressedDirection = pressedDirection;
-        pressedDirection = getPressedDirection();
-        if (lastPressedDirection == null && pressedDirection != null)
-            pressedSinceReset = true;
-
-        if (lastPressedDirection != null && pressedDirection == null)
-            memorizedDirection = lastPressedDirection;
+        profilerToggleRequested = Gdx.input.isKeyJustPressed(Input.Keys.F3);
+        profilerDumpRequested = Gdx.input.isKeyJustPressed(Input.Keys.F4);
+        slowerRequested = Gdx.input.isKeyJustPressed(Input.Keys.F5);
+        fasterRequested = Gdx.input.isKeyJustPressed(Input.Keys.F6);
+        turboToggleRequested = Gdx.input.isKeyJustPressed(Input.Keys.F7);
     }
 
     public boolean isPauseRequested() {
         return pauseRequested;
     }
 
+    public boolean isProfilerToggleRequested() {
+        return profilerToggleRequested;
+    }
+
+    public boolean isProfilerDumpRequested() {
+        return profilerDumpRequested;
+    }
+
+    public boolean isSlowerRequested() {
+        return slowerRequested;
+    }
+
+    public boolean isFasterRequested() {
+        return fasterRequested;
+    }
+
+    public boolean isTurboToggleRequested() {
+        return turboToggleRequested;
+    }
+
+    @Override
+    public boolean keyDown(int keycode) {
+        for (Direction direction : DIRECTIONS) {
+            int keyBit = getKeyBit(direction, keycode);
+            if (keyBit != 0) {
+                int pressed = pressedKeys[direction.ordinal()];
+                pressedKeys[direction.ordinal()] = pressed | keyBit;
+                if (pressed == 0 && queueSize < MAX_QUEUED_PRESSES) {
+                    int index = (queueStart + queueSize) % MAX_QUEUED_PRESSES;
+                    queuedDirections[index] = direction;
+                    queuedTimes[index] = Gdx.input.getCurrentEventTime();
+                    queueSize++;
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean keyUp(int keycode) {
+        for (Direction direction : DIRECTIONS) {
+            int keyBit = getKeyBit(direction, keycode);
+            if (keyBit != 0) {
+                pressedKeys[direction.ordinal()] &= ~keyBit;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Forgets the held keys and queued presses, has to be called when the input system starts receiving the key
+     * events again, as it did not see the keys released in the meantime.
+     */
+    public void clearKeys() {
+        for (int i = 0; i < pressedKeys.length; i++)
+            pressedKeys[i] = 0;
+        queueStart = 0;
+        queueSize = 0;
+    }
+
+    /**
+     * Marks the input returned by {@link #getPlayerInput()} as used by a tick.
+     */
     public void resetPlayerInput() {
-        pressedSinceReset = false;
-        memorizedDirection = null;
+        if (queueSize > 0) {
+            queuedDirections[queueStart] = null;
+            queueStart = (queueStart + 1) % MAX_QUEUED_PRESSES;
+            queueSize--;
+        }
     }
 
+    /**
+     * Returns the direction of the oldest press not used by a tick yet, or the held direction, if there is no such
+     * press. Returns null, if no or more than one direction is held.
+     */
     public Direction getPlayerInput() {
-        if (pressedDirection != null)
-            return pressedDirection;
-        if (pressedSinceReset)
-            return memorizedDirection;
-        return null;
-    }
-
-    private static Direction getPressedDirection() {
-        Direction pressedDirection = null;
-        for (Direction value : Direction.values()) {
-            if (isKeyPressed(value.getKeys())) {
-                if (pressedDirection != null) {
-                    // More than 1 diretion key pressed
+        if (queueSize > 0)
+            return queuedDirections[queueStart];
+        return getHeldDirection();
+    }
+
+    /**
+     * Returns the time of the key event (in the time base of {@link System#nanoTime()}) of the press returned by
+     * {@link #getPlayerInput()}, or {@link #NO_INPUT_TIME} if the input is not a press, but a held direction.
+     */
+    public long getPlayerInputTime() {
+        return (queueSize > 0) ? queuedTimes[queueStart] : NO_INPUT_TIME;
+    }
+
+    private Direction getHeldDirection() {
+        Direction heldDirection = null;
+        for (Direction value : DIRECTIONS) {
+            if (pressedKeys[value.ordinal()] != 0) {
+                if (heldDirection != null) {
+                    // More than 1 direction key pressed
                     return null;
                 } else {
-                    pressedDirection = value;
+                    heldDirection = value;
                 }
             }
         }
-        return pressedDirection;
+        return heldDirection;
     }
 
-    private static boolean isKeyPressed(int... keys) {
-        for (int key : keys) {
-            if (Gdx.input.isKeyPressed(key))
-                return true;
+    private static int getKeyBit(Direction direction, int keycode) {
+        int[] keys = direction.getKeys();
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == keycode)
+                return 1 << i;
         }
-        return false;
+        return 0;
     }
 }
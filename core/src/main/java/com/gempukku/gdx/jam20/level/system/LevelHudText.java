@@ -0,0 +1,62 @@
+package com.gempukku.gdx.jam20.level.system;
+
+import com.badlogic.gdx.utils.StringBuilder;
+
+/**
+ * Texts of the HUD of a level. A text is only rebuilt when its displayed value changes, and it is built without
+ * allocations, so that it can be updated every frame.
+ */
+public class LevelHudText {
+    private final StringBuilder collectablesText = new StringBuilder();
+    private final StringBuilder remainingTimeText = new StringBuilder();
+    private int displayedCollectables = -1;
+    private int displayedRemainingTime = -1;
+
+    /**
+     * Forces the texts to be rebuilt on the next update, has to be called when a level is loaded.
+     */
+    public void reset() {
+        displayedCollectables = -1;
+        displayedRemainingTime = -1;
+    }
+
+    /**
+     * Rebuilds the collectables text, if the number of collected collectables changed.
+     *
+     * @return true if the text changed
+     */
+    public boolean updateCollectables(LevelSystem levelSystem) {
+        int collectables = levelSystem.getCollectablesCollected();
+        if (collectables == displayedCollectables)
+            return false;
+
+        displayedCollectables = collectables;
+        collectablesText.setLength(0);
+        collectablesText.append("Grubs: ").append(collectables).append('/').append(levelSystem.getCollectablesRequired());
+        return true;
+    }
+
+    /**
+     * Rebuilds the remaining time text, if the number of remaining seconds changed.
+     *
+     * @return true if the text changed
+     */
+    public boolean updateRemainingTime(LevelSystem levelSystem) {
+        int remainingTime = levelSystem.getGameLevel().getMaximumLevelTime() - (int) levelSystem.getLevelTime();
+        if (remainingTime == displayedRemainingTime)
+            return false;
+
+        displayedRemainingTime = remainingTime;
+        remainingTimeText.setLength(0);
+        remainingTimeText.append("Time: ").append(remainingTime / 60, 3, '0').append(':').append(remainingTime % 60, 2, '0');
+        return true;
+    }
+
+    public StringBuilder getCollectablesText() {
+        return collectablesText;
+    }
+
+    public StringBuilder getRemainingTimeText() {
+        return remainingTimeText;
+    }
+}
@@ -1,46 +1,133 @@
 package com.gempukku.gdx.jam20.level.system;
 
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.math.Vector3;
 import com.gempukku.gdx.jam20.level.LevelObject;
 import com.gempukku.libgdx.graph.plugin.sprites.GraphSprites;
 import com.gempukku.libgdx.graph.util.sprite.CommonPropertiesSpriteAdapter;
 
+/**
+ * Sprite of a level object. Changes of position and texture are only collected, and are applied to the sprite when
+ * {@link LevelObjectSpriteUpdates} is flushed. A sprite that changed its cell moves smoothly from the previous cell to
+ * the new one until the next flush.
+ */
 public class LevelObjectSprite extends CommonPropertiesSpriteAdapter {
-    private InputSystem.Direction lastMove = InputSystem.Direction.Up;
-    private boolean falling;
     private int x;
     private int y;
-    private LevelObject type;
+    private int fromX;
+    private int fromY;
+    private boolean changed;
+    private boolean moving;
+    private final LevelObject type;
+    private final LevelObjectSpriteGrid spriteGrid;
+    private final LevelObjectSpriteUpdates spriteUpdates;
 
-    public LevelObjectSprite(LevelObject type, GraphSprites graphSprites) {
+    public LevelObjectSprite(LevelObject type, GraphSprites graphSprites, LevelObjectSpriteGrid spriteGrid,
+                             LevelObjectSpriteUpdates spriteUpdates) {
         super(graphSprites);
 
         this.type = type;
+        this.spriteGrid = spriteGrid;
+        this.spriteUpdates = spriteUpdates;
     }
 
-    public InputSystem.Direction getLastMove() {
-        return lastMove;
+    /**
+     * Places the sprite before it is added to the rendering, the changes are applied immediately.
+     */
+    public void place(int x, int y, TextureAtlas.AtlasRegion texture) {
+        getPropertyContainer().setValue("Texture", texture);
+        moveInGrid(x, y);
+        Vector3 position = getPosition();
+        position.set(x + 0.5f, y + 0.5f, position.z);
+        changed = false;
+        moving = false;
     }
 
-    public void setLastMove(InputSystem.Direction lastMove) {
-        this.lastMove = lastMove;
+    public void setPosition(int x, int y) {
+        if (!changed) {
+            fromX = this.x;
+            fromY = this.y;
+        }
+        moveInGrid(x, y);
+        markChanged();
     }
 
-    public void setPosition(int x, int y) {
-        this.x = x;
-        this.y = y;
+    public void setTexture(TextureAtlas.AtlasRegion texture) {
+        if (!changed) {
+            fromX = x;
+            fromY = y;
+        }
+        getPropertyContainer().setValue("Texture", texture);
+        markChanged();
+    }
+
+    /**
+     * Drops the pending changes, as the sprite is no longer rendered.
+     */
+    public void discardChanges() {
+        changed = false;
+        moving = false;
+    }
+
+    boolean isChanged() {
+        return changed;
+    }
+
+    /**
+     * Applies the collected changes.
+     *
+     * @return true, if the sprite changed its cell and should be interpolated until the next flush
+     */
+    boolean flush() {
+        if (!changed)
+            return false;
+
+        changed = false;
+        moving = fromX != x || fromY != y;
+        if (moving)
+            // Sprite is updated with its position, when it is interpolated
+            return true;
 
         Vector3 position = getPosition();
         position.set(x + 0.5f, y + 0.5f, position.z);
         updateSprite();
+        return false;
+    }
+
+    /**
+     * Places the moving sprite between the cell it moved from and its current cell.
+     */
+    void interpolate(float alpha) {
+        if (moving) {
+            Vector3 position = getPosition();
+            position.set(fromX + (x - fromX) * alpha + 0.5f, fromY + (y - fromY) * alpha + 0.5f, position.z);
+            updateSprite();
+        }
     }
 
-    public boolean isFalling() {
-        return falling;
+    /**
+     * Moves the sprite to its current cell, if it has not reached it yet.
+     */
+    void finishMovement() {
+        if (moving) {
+            moving = false;
+            Vector3 position = getPosition();
+            position.set(x + 0.5f, y + 0.5f, position.z);
+            updateSprite();
+        }
     }
 
-    public void setFalling(boolean falling) {
-        this.falling = falling;
+    private void moveInGrid(int x, int y) {
+        spriteGrid.moveSprite(this, this.x, this.y, x, y);
+        this.x = x;
+        this.y = y;
+    }
+
+    private void markChanged() {
+        if (!changed) {
+            changed = true;
+            spriteUpdates.spriteChanged(this);
+        }
     }
 
     public int getX() {
@@ -54,9 +141,4 @@ public class LevelObjectSprite extends CommonPropertiesSpriteAdapter {
     public LevelObject getType() {
         return type;
     }
-
-    public void setType(LevelObject type) {
-        this.type = type;
-    }
 }
-
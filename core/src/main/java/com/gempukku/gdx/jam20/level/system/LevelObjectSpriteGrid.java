@@ -0,0 +1,77 @@
+package com.gempukku.gdx.jam20.level.system;
+
+import com.badlogic.gdx.math.MathUtils;
+
+import java.util.Arrays;
+
+/**
+ * Sprites indexed by the cell they are in. Cells are stored by their position modulo the size of the grid, so the grid
+ * can hold the sprites of any window of the level, that is not bigger than the grid.
+ * <p>
+ * Grid also keeps track of the cells that were spawned - that have their sprite, if the object in them has one.
+ */
+public class LevelObjectSpriteGrid {
+    private int width;
+    private int height;
+    private LevelObjectSprite[] cells;
+    private boolean[] spawnedCells;
+
+    public LevelObjectSpriteGrid(int width, int height) {
+        setSize(width, height);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Changes the size of the grid, the grid has to be empty.
+     */
+    public void setSize(int width, int height) {
+        this.width = MathUtils.nextPowerOfTwo(width);
+        this.height = MathUtils.nextPowerOfTwo(height);
+        this.cells = new LevelObjectSprite[this.width * this.height];
+        this.spawnedCells = new boolean[this.width * this.height];
+    }
+
+    public LevelObjectSprite getSpriteAt(int x, int y) {
+        return cells[getIndex(x, y)];
+    }
+
+    public void moveSprite(LevelObjectSprite sprite, int fromX, int fromY, int toX, int toY) {
+        clearCell(sprite, fromX, fromY);
+        cells[getIndex(toX, toY)] = sprite;
+    }
+
+    public void removeSprite(LevelObjectSprite sprite) {
+        clearCell(sprite, sprite.getX(), sprite.getY());
+    }
+
+    public boolean isCellSpawned(int x, int y) {
+        return spawnedCells[getIndex(x, y)];
+    }
+
+    public void setCellSpawned(int x, int y, boolean spawned) {
+        spawnedCells[getIndex(x, y)] = spawned;
+    }
+
+    public void clear() {
+        Arrays.fill(cells, null);
+        Arrays.fill(spawnedCells, false);
+    }
+
+    private void clearCell(LevelObjectSprite sprite, int x, int y) {
+        int index = getIndex(x, y);
+        // Sprite might not have been placed in this cell, so it must not clear whatever occupies it
+        if (cells[index] == sprite)
+            cells[index] = null;
+    }
+
+    private int getIndex(int x, int y) {
+        return (y & (height - 1)) * width + (x & (width - 1));
+    }
+}
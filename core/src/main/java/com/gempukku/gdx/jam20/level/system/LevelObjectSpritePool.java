@@ -0,0 +1,96 @@
+package com.gempukku.gdx.jam20.level.system;
+
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Pool;
+import com.gempukku.gdx.jam20.level.LevelObject;
+import com.gempukku.libgdx.graph.plugin.sprites.GraphSprites;
+
+/**
+ * Pools of sprites, one per type of level object drawn as a sprite. Sprites keep their property container, texture and size while
+ * in the pool, so reusing a sprite only needs to position it and tag it again.
+ */
+public class LevelObjectSpritePool {
+    private static final String ANIMATED_TAG = "Animated";
+
+    private final GraphSprites graphSprites;
+    private final LevelObjectSpriteGrid spriteGrid;
+    private final LevelObjectSpriteUpdates spriteUpdates;
+    private final TypePool[] pools;
+    private TextureAtlas textureAtlas;
+    private int spriteCount;
+
+    public LevelObjectSpritePool(GraphSprites graphSprites, LevelObjectSpriteGrid spriteGrid, LevelObjectSpriteUpdates spriteUpdates) {
+        this.graphSprites = graphSprites;
+        this.spriteGrid = spriteGrid;
+        this.spriteUpdates = spriteUpdates;
+
+        LevelObject[] levelObjects = LevelObject.values();
+        pools = new TypePool[levelObjects.length];
+        for (LevelObject levelObject : levelObjects) {
+            if (levelObject.isSpawnSprite() && !levelObject.isStaticTile())
+                pools[levelObject.ordinal()] = new TypePool(levelObject);
+        }
+    }
+
+    public void setTextureAtlas(TextureAtlas textureAtlas) {
+        if (this.textureAtlas != textureAtlas) {
+            this.textureAtlas = textureAtlas;
+            // Pooled sprites use textures from the previous atlas
+            for (TypePool pool : pools) {
+                if (pool != null) {
+                    pool.clear();
+                    pool.region = textureAtlas.findRegion(pool.levelObject.getSpriteRegionName());
+                }
+            }
+        }
+    }
+
+    public LevelObjectSprite obtain(LevelObject levelObject, int x, int y) {
+        return obtain(levelObject, x, y, null);
+    }
+
+    /**
+     * Obtains a sprite with a texture other than the default one for its type.
+     */
+    public LevelObjectSprite obtain(LevelObject levelObject, int x, int y, TextureAtlas.AtlasRegion texture) {
+        TypePool pool = pools[levelObject.ordinal()];
+        LevelObjectSprite sprite = pool.obtain();
+        sprite.place(x, y, (texture != null) ? texture : pool.region);
+        sprite.addTag(ANIMATED_TAG);
+        spriteCount++;
+        return sprite;
+    }
+
+    public void free(LevelObjectSprite sprite) {
+        sprite.removeTag(ANIMATED_TAG);
+        sprite.discardChanges();
+        spriteGrid.removeSprite(sprite);
+        pools[sprite.getType().ordinal()].free(sprite);
+        spriteCount--;
+    }
+
+    /**
+     * Returns the number of sprites obtained and not freed yet.
+     */
+    public int getSpriteCount() {
+        return spriteCount;
+    }
+
+    private class TypePool extends Pool<LevelObjectSprite> {
+        private final LevelObject levelObject;
+        private TextureAtlas.AtlasRegion region;
+
+        private TypePool(LevelObject levelObject) {
+            this.levelObject = levelObject;
+        }
+
+        @Override
+        protected LevelObjectSprite newObject() {
+            LevelObjectSprite sprite = new LevelObjectSprite(levelObject, graphSprites, spriteGrid, spriteUpdates);
+            sprite.getPropertyContainer().setValue("Texture", region);
+            sprite.getPropertyContainer().setValue("Size", new Vector2(1, 1));
+            return sprite;
+        }
+    }
+}
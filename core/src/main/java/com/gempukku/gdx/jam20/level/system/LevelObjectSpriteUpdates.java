@@ -0,0 +1,56 @@
+package com.gempukku.gdx.jam20.level.system;
+
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Sprites, whose position or texture changed since the last flush. Each changed sprite is updated in
+ * {@link com.gempukku.libgdx.graph.plugin.sprites.GraphSprites} only once per flush, no matter how many times it
+ * changed.
+ * <p>
+ * Sprites that moved to another cell are interpolated between the cells until the next flush, so they are updated
+ * once per frame while moving.
+ */
+public class LevelObjectSpriteUpdates {
+    private final Array<LevelObjectSprite> changedSprites = new Array<>(false, 64);
+    private final Array<LevelObjectSprite> movingSprites = new Array<>(false, 64);
+
+    void spriteChanged(LevelObjectSprite sprite) {
+        changedSprites.add(sprite);
+    }
+
+    public void flush() {
+        for (int i = 0; i < movingSprites.size; i++) {
+            LevelObjectSprite sprite = movingSprites.get(i);
+            // Sprites that changed again start the next movement from where they are
+            if (!sprite.isChanged())
+                sprite.finishMovement();
+        }
+        movingSprites.clear();
+
+        for (int i = 0; i < changedSprites.size; i++) {
+            LevelObjectSprite sprite = changedSprites.get(i);
+            if (sprite.flush())
+                movingSprites.add(sprite);
+        }
+        changedSprites.clear();
+    }
+
+    /**
+     * Updates the position of the moving sprites.
+     *
+     * @param alpha progress from the last tick to the next one, from 0 to 1
+     */
+    public void interpolate(float alpha) {
+        for (int i = 0; i < movingSprites.size; i++)
+            movingSprites.get(i).interpolate(alpha);
+    }
+
+    /**
+     * Moves all the moving sprites to their cells.
+     */
+    public void finishMovement() {
+        for (int i = 0; i < movingSprites.size; i++)
+            movingSprites.get(i).finishMovement();
+        movingSprites.clear();
+    }
+}
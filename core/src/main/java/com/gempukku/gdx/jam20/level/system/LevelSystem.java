@@ -1,69 +1,187 @@
 package com.gempukku.gdx.jam20.level.system;
 
+import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
 import com.gempukku.gdx.jam20.level.GameLevel;
 import com.gempukku.gdx.jam20.level.LevelObject;
+import com.gempukku.gdx.jam20.level.replay.Replay;
+import com.gempukku.gdx.jam20.level.replay.ReplayPlayer;
+import com.gempukku.gdx.jam20.level.replay.ReplayRecorder;
+import com.gempukku.gdx.jam20.level.simulation.FinishReason;
+import com.gempukku.gdx.jam20.level.simulation.LevelMirror;
+import com.gempukku.gdx.jam20.level.simulation.LevelSimulation;
+import com.gempukku.gdx.jam20.level.simulation.LevelSimulationListener;
+import com.gempukku.gdx.jam20.level.simulation.LevelState;
+import com.gempukku.gdx.jam20.level.simulation.SimulationChanges;
+import com.gempukku.gdx.jam20.level.simulation.SimulationEvent;
+import com.gempukku.gdx.jam20.profiler.GameEventRecorder;
+import com.gempukku.gdx.jam20.profiler.GameEvents;
+import com.gempukku.gdx.jam20.time.FixedStepScheduler;
 import com.gempukku.libgdx.graph.pipeline.PipelineRenderer;
 import com.gempukku.libgdx.graph.plugin.sprites.GraphSprites;
-import com.gempukku.libgdx.graph.time.TimeKeeper;
 import com.gempukku.libgdx.lib.camera2d.focus.CameraFocus;
 
-import static com.gempukku.gdx.jam20.level.system.InputSystem.Direction.*;
+/**
+ * Mirrors the state of {@link LevelSimulation} into sprites and sounds, and feeds it with the player input.
+ * <p>
+ * Sprites exist only for the cells in the visible area of the level (plus a margin), they are returned to the pool
+ * when cells leave the area, and obtained from it when they enter it. Objects that never move are not sprites, they
+ * are drawn by {@link StaticTileLayer}.
+ * <p>
+ * Simulation can optionally run on its own thread. The sprites are then updated from {@link LevelMirror}, which applies
+ * the changes published by the simulation thread.
+ */
+public class LevelSystem implements CameraFocus, LevelSimulationListener {
+    // Number of cells around the camera view, that have sprites spawned
+    private static final int VISIBLE_MARGIN = 4;
+    // Cells up to this distance from the player are spawned in the same frame, the rest within the per-frame budget
+    private static final int SYNC_SPAWN_RADIUS = 16;
+    private static final long SPAWN_BUDGET_NANOS = 2000000L;
+    // Number of cells spawned between checks of the budget, has to be a power of two
+    private static final int SPAWN_BUDGET_CHECK_INTERVAL = 64;
+    // Time of a frame spent processing ticks in turbo mode
+    private static final long TURBO_BUDGET_NANOS = 8000000L;
 
-public class LevelSystem implements CameraFocus {
-    public enum FinishReason {
-        Success("Congratulations!", false),
-        Run_Out_Of_Time("You've run out of time", true),
-        Killed_By_Enemy("Fox got to you first", true),
-        Crushed_By_Rock("You've been crushed by rock", true);
+    private GameLevel gameLevel;
+    private final LevelSimulation simulation = new LevelSimulation();
+    private final LevelMirror levelMirror = new LevelMirror(this);
+    // State the sprites are updated from, either the simulation or its mirror
+    private LevelState levelState = simulation;
+    private final SimulationThread simulationThread;
+    private boolean threadedSimulation;
+    private boolean inputReset;
+    private boolean immediateInput;
+    private boolean turbo;
+    // Player did not request any direction in the last tick, written by the thread processing the ticks
+    private volatile boolean playerIdle;
+    // Number of sprites, published by the render thread for the ticks processed on the simulation thread
+    private volatile int publishedSpriteCount;
+    private final LevelObjectSpriteGrid spriteGrid = new LevelObjectSpriteGrid(1, 1);
+    private final LevelObjectSpriteUpdates spriteUpdates = new LevelObjectSpriteUpdates();
+    private final LevelObjectSpritePool spritePool;
+    private final StaticTileLayer staticTileLayer = new StaticTileLayer();
+    private final TextureAtlas.AtlasRegion[] playerRegions = new TextureAtlas.AtlasRegion[InputSystem.Direction.values().length];
+    private TextureAtlas.AtlasRegion defaultPlayerRegion;
+    private InputSystem.Direction playerDirection;
+    private final ReplayRecorder replayRecorder = new ReplayRecorder();
+    private ReplayPlayer replayPlayer;
+    private final GameEventRecorder eventRecorder = GameEvents.getRecorder();
+
+    // Inclusive bounds of the cells that have sprites spawned, empty if max is lower than min
+    private int spawnedMinX;
+    private int spawnedMinY;
+    private int spawnedMaxX = -1;
+    private int spawnedMaxY = -1;
+    // Progress of spawning the cells in rings around the center, ring is -1 when all the cells are spawned
+    private int spawnCenterX;
+    private int spawnCenterY;
+    private int spawnRing = -1;
+    private int spawnRingIndex;
+
+    private FixedStepScheduler tickScheduler;
+    private InputSystem inputSystem;
+    private SoundSystem soundSystem;
+    private TextureAtlas textureAtlas;
 
-        private String text;
-        private boolean retry;
+    public LevelSystem(FixedStepScheduler tickScheduler, InputSystem inputSystem,
+                       SoundSystem soundSystem, PipelineRenderer pipelineRenderer) {
+        this(tickScheduler, inputSystem, soundSystem, pipelineRenderer.getPluginData(GraphSprites.class));
+    }
 
-        FinishReason(String text, boolean retry) {
-            this.text = text;
-            this.retry = retry;
-        }
+    LevelSystem(FixedStepScheduler tickScheduler, InputSystem inputSystem,
+                SoundSystem soundSystem, GraphSprites graphSprites) {
+        this.tickScheduler = tickScheduler;
+        this.inputSystem = inputSystem;
+        this.soundSystem = soundSystem;
+        this.spritePool = new LevelObjectSpritePool(graphSprites, spriteGrid, spriteUpdates);
+        this.simulationThread = new SimulationThread(simulation, this::processTicks, this::canProcessImmediateTick,
+                tickScheduler.createCopy());
 
-        public boolean isRetry() {
-            return retry;
-        }
+        simulation.setListener(this);
+    }
 
-        public String getText() {
-            return text;
-        }
+    /**
+     * Sets, if the simulation should run on its own thread, takes effect when the next level is loaded.
+     */
+    public void setThreadedSimulation(boolean threadedSimulation) {
+        this.threadedSimulation = threadedSimulation;
     }
 
-    private GameLevel gameLevel;
-    private Array<LevelObjectSprite> levelObjectSprites = new Array<>();
-    private LevelObjectSprite playerSprite;
+    public boolean isThreadedSimulation() {
+        return threadedSimulation;
+    }
 
-    private int collectablesCollected;
-    private FinishReason finishReason;
+    /**
+     * Sets, if a key press of an idle player should be processed in a tick immediately, instead of waiting for
+     * the next tick. Following ticks are then due a step after the key press.
+     */
+    public void setImmediateInput(boolean immediateInput) {
+        this.immediateInput = immediateInput;
+    }
 
-    private TimeKeeper timeKeeper;
-    private InputSystem inputSystem;
-    private SoundSystem soundSystem;
-    private GraphSprites graphSprites;
-    private TextureAtlas textureAtlas;
+    public boolean isImmediateInput() {
+        return immediateInput;
+    }
 
-    public LevelSystem(TimeKeeper timeKeeper, InputSystem inputSystem,
-                       SoundSystem soundSystem, PipelineRenderer pipelineRenderer) {
-        this.timeKeeper = timeKeeper;
-        this.inputSystem = inputSystem;
-        this.soundSystem = soundSystem;
-        this.graphSprites = pipelineRenderer.getPluginData(GraphSprites.class);
+    /**
+     * Sets the speed multiplier of the level time, takes effect immediately.
+     */
+    public void setSpeed(float speed) {
+        tickScheduler.setSpeed(speed);
+        simulationThread.setSpeed(speed);
+    }
+
+    public float getSpeed() {
+        return tickScheduler.getSpeed();
+    }
+
+    /**
+     * Sets, if the ticks should run as fast as possible, instead of at the tick rate, takes effect immediately.
+     */
+    public void setTurbo(boolean turbo) {
+        this.turbo = turbo;
+        simulationThread.setTurbo(turbo);
+    }
+
+    public boolean isTurbo() {
+        return turbo;
+    }
+
+    /**
+     * Returns the number of ticks per second the level should run at, with the speed applied. Not used in turbo mode.
+     */
+    public float getTargetTickRate() {
+        return gameLevel.getTicksPerSecond() * tickScheduler.getSpeed();
     }
 
     public FinishReason getFinishReason() {
-        return finishReason;
+        return levelState.getFinishReason();
     }
 
     public int getCollectablesCollected() {
-        return collectablesCollected;
+        return levelState.getCollectablesCollected();
+    }
+
+    public long getTickCount() {
+        return levelState.getTickCount();
+    }
+
+    public int getSpriteCount() {
+        return spritePool.getSpriteCount();
+    }
+
+    public StaticTileLayer getStaticTileLayer() {
+        return staticTileLayer;
+    }
+
+    /**
+     * Returns the time of the level in seconds.
+     */
+    public double getLevelTime() {
+        return simulationThread.isRunning() ? levelMirror.getTime() : tickScheduler.getTime();
     }
 
     public int getCollectablesRequired() {
@@ -74,269 +192,469 @@ public class LevelSystem implements CameraFocus {
         return gameLevel;
     }
 
+    public LevelSimulation getSimulation() {
+        return simulation;
+    }
+
     public void loadLevel(GameLevel gameLevel, TextureAtlas textureAtlas) {
+        startLevel(gameLevel, textureAtlas, null);
+    }
+
+    /**
+     * Loads the level, and plays the recorded run on it instead of using the player input.
+     */
+    public void loadReplay(GameLevel gameLevel, TextureAtlas textureAtlas, Replay replay) {
+        startLevel(gameLevel, textureAtlas, new ReplayPlayer(replay));
+    }
+
+    private void startLevel(GameLevel gameLevel, TextureAtlas textureAtlas, ReplayPlayer replayPlayer) {
+        GameEventRecorder.Span span = eventRecorder.beginLevelLoad();
+        simulationThread.stop();
         this.gameLevel = gameLevel;
-        this.textureAtlas = textureAtlas;
-
-        LevelObject[][] levelData = gameLevel.getLevelData();
-
-        int y = 0;
-        for (LevelObject[] rowData : levelData) {
-            int x = 0;
-            for (LevelObject levelObject : rowData) {
-                LevelObjectSprite sprite = spawnObject(levelObject, x, gameLevel.getHeight() - y - 1);
-                if (sprite != null) {
-                    if (levelObject == LevelObject.Player) {
-                        playerSprite = sprite;
-                    }
-                    levelObjectSprites.add(sprite);
-                }
-                x++;
+        this.playerDirection = null;
+        if (this.textureAtlas != textureAtlas) {
+            this.textureAtlas = textureAtlas;
+            spritePool.setTextureAtlas(textureAtlas);
+            staticTileLayer.setTextureAtlas(textureAtlas);
+            defaultPlayerRegion = textureAtlas.findRegion(LevelObject.Player.getSpriteRegionName());
+            for (InputSystem.Direction direction : InputSystem.Direction.values()) {
+                playerRegions[direction.ordinal()] = textureAtlas.findRegion("player-" + direction.getName());
             }
-            y++;
         }
+
+        simulation.loadLevel(gameLevel);
+        this.replayPlayer = replayPlayer;
+        playerIdle = true;
+        replayRecorder.start(gameLevel.getName());
+
+        if (threadedSimulation) {
+            levelMirror.loadLevel(simulation);
+            levelState = levelMirror;
+            inputReset = false;
+            publishedSpriteCount = spritePool.getSpriteCount();
+            simulationThread.start(tickScheduler.getStepNanos());
+        } else {
+            simulation.setListener(this);
+            levelState = simulation;
+        }
+        staticTileLayer.loadLevel(levelState);
+        eventRecorder.endLevelLoad(span, gameLevel.getName(), gameLevel.getWidth(), gameLevel.getHeight(),
+                replayPlayer != null, threadedSimulation);
+    }
+
+    /**
+     * Pauses the simulation thread, if the simulation runs on one.
+     */
+    public void setPaused(boolean paused) {
+        simulationThread.setPaused(paused);
+    }
+
+    public boolean isReplaying() {
+        return replayPlayer != null;
+    }
+
+    /**
+     * Returns the run recorded since the level was loaded.
+     */
+    public Replay getRecordedReplay() {
+        return replayRecorder.createReplay();
     }
 
     public void unloadLevel() {
-        for (LevelObjectSprite levelObjectSprite : levelObjectSprites) {
-            levelObjectSprite.removeTag("Animated");
-        }
-        levelObjectSprites.clear();
-        playerSprite.removeTag("Animated");
+        simulationThread.stop();
+        despawnArea(spawnedMinX, spawnedMinY, spawnedMaxX, spawnedMaxY);
+        spriteUpdates.finishMovement();
+        staticTileLayer.unloadLevel();
+        spawnedMaxX = spawnedMinX - 1;
+        spawnedMaxY = spawnedMinY - 1;
+        spawnRing = -1;
 
         gameLevel = null;
-        collectablesCollected = 0;
-        finishReason = null;
     }
 
-    private LevelObjectSprite spawnObject(LevelObject levelObject, int x, int y) {
-        if (levelObject.isSpawnSprite()) {
-            LevelObjectSprite sprite = new LevelObjectSprite(levelObject, graphSprites);
-            sprite.setPosition(x, y);
-            TextureAtlas.AtlasRegion textureRegion = textureAtlas.findRegion(levelObject.getSpriteRegionName());
-            sprite.getPropertyContainer().setValue("Texture", textureRegion);
-            sprite.getPropertyContainer().setValue("Size", new Vector2(1, 1));
+    /**
+     * Spawns the sprites for the cells that became visible and recycles the ones of cells that are no longer visible.
+     * Sprites are only respawned, when the camera view gets outside of the spawned area.
+     * <p>
+     * Cells that became visible are spawned in rings around the player, nearest first. Cells close to the player are
+     * spawned in the same frame, the rest continue in the following frames, as long as the frame's spawn budget allows.
+     * Until a cell is spawned, changes of the level in it are ignored, it is spawned from the current state later.
+     */
+    public void updateVisibleArea(OrthographicCamera camera) {
+        if (gameLevel == null)
+            return;
+
+        float halfWidth = camera.viewportWidth * camera.zoom / 2f;
+        float halfHeight = camera.viewportHeight * camera.zoom / 2f;
+        int viewMinX = Math.max(0, MathUtils.floor(camera.position.x - halfWidth));
+        int viewMinY = Math.max(0, MathUtils.floor(camera.position.y - halfHeight));
+        int viewMaxX = Math.min(levelState.getWidth() - 1, MathUtils.floor(camera.position.x + halfWidth));
+        int viewMaxY = Math.min(levelState.getHeight() - 1, MathUtils.floor(camera.position.y + halfHeight));
+
+        boolean areaChanged = viewMinX < spawnedMinX || viewMinY < spawnedMinY || viewMaxX > spawnedMaxX || viewMaxY > spawnedMaxY;
+        if (!areaChanged && spawnRing < 0)
+            return;
+
+        GameEventRecorder.Span span = eventRecorder.beginVisibleAreaUpdate();
+        int despawned = 0;
+        if (areaChanged) {
+            int minX = Math.max(0, viewMinX - VISIBLE_MARGIN);
+            int minY = Math.max(0, viewMinY - VISIBLE_MARGIN);
+            int maxX = Math.min(levelState.getWidth() - 1, viewMaxX + VISIBLE_MARGIN);
+            int maxY = Math.min(levelState.getHeight() - 1, viewMaxY + VISIBLE_MARGIN);
+
+            if (maxX - minX + 1 > spriteGrid.getWidth() || maxY - minY + 1 > spriteGrid.getHeight()) {
+                despawned += despawnArea(spawnedMinX, spawnedMinY, spawnedMaxX, spawnedMaxY);
+                spawnedMaxX = spawnedMinX - 1;
+                spawnedMaxY = spawnedMinY - 1;
+                spriteGrid.setSize(maxX - minX + 1, maxY - minY + 1);
+            }
 
-            sprite.addTag("Animated");
+            for (int y = spawnedMinY; y <= spawnedMaxY; y++) {
+                for (int x = spawnedMinX; x <= spawnedMaxX; x++) {
+                    if ((x < minX || x > maxX || y < minY || y > maxY) && despawnCell(x, y))
+                        despawned++;
+                }
+            }
 
-            return sprite;
+            spawnedMinX = minX;
+            spawnedMinY = minY;
+            spawnedMaxX = maxX;
+            spawnedMaxY = maxY;
+            staticTileLayer.setVisibleArea(minX, minY, maxX, maxY, levelState.getPlayerX(), levelState.getPlayerY());
+
+            // Spawning starts again from the player, cells already spawned are skipped
+            spawnCenterX = MathUtils.clamp(levelState.getPlayerX(), minX, maxX);
+            spawnCenterY = MathUtils.clamp(levelState.getPlayerY(), minY, maxY);
+            spawnRing = 0;
+            spawnRingIndex = 0;
         }
-        return null;
+        int spawned = spawnPendingCells();
+        int spriteCount = spritePool.getSpriteCount();
+        publishedSpriteCount = spriteCount;
+        eventRecorder.endVisibleAreaUpdate(span, spawned, despawned, spriteCount);
     }
 
-    private LevelObjectSprite getSpriteOfType(LevelObject levelObject) {
-        for (LevelObjectSprite levelObjectSprite : levelObjectSprites) {
-            if (levelObjectSprite.getType() == levelObject)
-                return levelObjectSprite;
+    /**
+     * Spawns the cells of the spawned area that are not spawned yet, continuing the rings around the spawn center.
+     * Returns the number of sprites spawned.
+     */
+    private int spawnPendingCells() {
+        long start = System.nanoTime();
+        int spawned = 0;
+        int processed = 0;
+        int lastRing = Math.max(Math.max(spawnCenterX - spawnedMinX, spawnedMaxX - spawnCenterX),
+                Math.max(spawnCenterY - spawnedMinY, spawnedMaxY - spawnCenterY));
+        while (spawnRing <= lastRing) {
+            if (spawnRing > SYNC_SPAWN_RADIUS && (++processed & (SPAWN_BUDGET_CHECK_INTERVAL - 1)) == 0
+                    && System.nanoTime() - start > SPAWN_BUDGET_NANOS)
+                return spawned;
+
+            int x = spawnCenterX;
+            int y = spawnCenterY;
+            int ring = spawnRing;
+            if (ring > 0) {
+                // Ring consists of the bottom and top rows, followed by the left and right columns without the corners
+                int rowLength = 2 * ring + 1;
+                int columnLength = 2 * ring - 1;
+                int index = spawnRingIndex;
+                if (index < 2 * rowLength) {
+                    x += index % rowLength - ring;
+                    y += (index < rowLength) ? -ring : ring;
+                } else {
+                    index -= 2 * rowLength;
+                    x += (index < columnLength) ? -ring : ring;
+                    y += index % columnLength - ring + 1;
+                }
+            }
+            if (++spawnRingIndex >= Math.max(1, 8 * ring)) {
+                spawnRing++;
+                spawnRingIndex = 0;
+            }
+
+            if (x >= spawnedMinX && x <= spawnedMaxX && y >= spawnedMinY && y <= spawnedMaxY && !spriteGrid.isCellSpawned(x, y)) {
+                spriteGrid.setCellSpawned(x, y, true);
+                if (spawnObject(levelState.getObjectAt(x, y), x, y))
+                    spawned++;
+            }
         }
-        return null;
+        spawnRing = -1;
+        return spawned;
+    }
+
+    private boolean isSpawned(int x, int y) {
+        return x >= spawnedMinX && x <= spawnedMaxX && y >= spawnedMinY && y <= spawnedMaxY && spriteGrid.isCellSpawned(x, y);
     }
 
-    private LevelObjectSprite getSpriteAt(int x, int y) {
-        for (LevelObjectSprite sprite : levelObjectSprites) {
-            if (sprite.getX() == x && sprite.getY() == y)
-                return sprite;
+    /**
+     * Returns the number of sprites despawned.
+     */
+    private int despawnArea(int minX, int minY, int maxX, int maxY) {
+        int despawned = 0;
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                if (despawnCell(x, y))
+                    despawned++;
+            }
         }
-        return null;
+        return despawned;
+    }
+
+    /**
+     * Returns true, if the object has a sprite.
+     */
+    private boolean spawnObject(LevelObject levelObject, int x, int y) {
+        if (!levelObject.isSpawnSprite() || levelObject.isStaticTile())
+            return false;
+        if (levelObject == LevelObject.Player)
+            spritePool.obtain(levelObject, x, y, getPlayerRegion());
+        else
+            spritePool.obtain(levelObject, x, y);
+        return true;
+    }
+
+    /**
+     * Despawns the cell when it leaves the spawned area, returns true, if there was a sprite in the cell.
+     */
+    private boolean despawnCell(int x, int y) {
+        spriteGrid.setCellSpawned(x, y, false);
+        return despawnObject(x, y);
+    }
+
+    /**
+     * Returns true, if there was a sprite in the cell.
+     */
+    private boolean despawnObject(int x, int y) {
+        LevelObjectSprite sprite = spriteGrid.getSpriteAt(x, y);
+        if (sprite == null)
+            return false;
+        spritePool.free(sprite);
+        return true;
+    }
+
+    private TextureAtlas.AtlasRegion getPlayerRegion() {
+        return (playerDirection != null) ? playerRegions[playerDirection.ordinal()] : defaultPlayerRegion;
     }
 
     @Override
     public Vector2 getFocus(Vector2 focus) {
-        return focus.set(playerSprite.getX(), playerSprite.getY());
-    }
-
-    public void update(boolean majorUpdate) {
-        if (gameLevel.getMaximumLevelTime() <= MathUtils.floor(timeKeeper.getTime()))
-            finishReason = FinishReason.Run_Out_Of_Time;
-        else if (majorUpdate) {
-            processPlayer();
-            checkForPlayerDeath();
-            processEnemies();
-            checkForPlayerDeath();
-            processStones();
-        }
+        return focus.set(levelState.getPlayerX(), levelState.getPlayerY());
     }
 
-    private void checkForPlayerDeath() {
-        if (finishReason == null) {
-            int playerX = playerSprite.getX();
-            int playerY = playerSprite.getY();
+    /**
+     * Updates the player input, has to be called before the level is updated in the frame.
+     */
+    public void updateInput() {
+        // Input taken by a tick on the simulation thread is reset before the next one is read, same as when
+        // the ticks are processed in update
+        inputReset = simulationThread.isRunning() && simulationThread.isInputTaken();
+        if (inputReset)
+            inputSystem.resetPlayerInput();
+        inputSystem.update();
+    }
 
-            for (InputSystem.Direction value : values()) {
-                LevelObjectSprite spriteAt = getSpriteAt(playerX + value.getX(), playerY + value.getY());
-                if (spriteAt != null && spriteAt.getType().isToxicToPlayer()) {
-                    finishReason = FinishReason.Killed_By_Enemy;
-                }
-            }
+    /**
+     * Processes the ticks scheduled for this frame, and moves the sprites between their cells according to the progress
+     * towards the next tick. When the simulation runs on its own thread, the changes it published are applied instead.
+     *
+     * @param tickCount number of ticks the scheduler scheduled in this frame
+     */
+    public void update(int tickCount) {
+        if (simulationThread.isRunning()) {
+            updateFromSimulationThread();
+            return;
         }
-    }
 
-    private void processPlayer() {
-        InputSystem.Direction requestedDirection = inputSystem.getPlayerInput();
-        inputSystem.resetPlayerInput();
-        if (requestedDirection != null) {
-            processPlayerMovement(requestedDirection);
+        if (turbo) {
+            tickCount = processTurboTicks(tickScheduler);
+        } else {
+            if (tickCount == 0 && immediateInput && inputSystem.getPlayerInputTime() != InputSystem.NO_INPUT_TIME
+                    && canProcessImmediateTick()) {
+                tickScheduler.rephase(TimeUtils.nanoTime() - inputSystem.getPlayerInputTime());
+                tickCount = 1;
+            }
+            processTicks(tickScheduler, tickCount);
         }
+
+        // Sprites changed during the ticks are updated once, with their final position and texture
+        if (tickCount > 0)
+            spriteUpdates.flush();
+        spriteUpdates.interpolate(turbo ? 1f : tickScheduler.getAlpha());
     }
 
-    private void processEnemies() {
-        for (LevelObjectSprite sprite : new Array.ArrayIterator<>(levelObjectSprites)) {
-            if (sprite.getType() == LevelObject.Fox) {
-                LevelObjectSprite spriteAbove = getSpriteAt(sprite.getX(), sprite.getY() + 1);
-                if (spriteAbove != null && spriteAbove.getType() == LevelObject.Stone)
-                    break;
-
-                InputSystem.Direction lastMove = sprite.getLastMove();
-                InputSystem.Direction firstDirection = getPreviousDirection(lastMove);
-                InputSystem.Direction checkDirection = firstDirection;
-
-                do {
-                    int nextX = sprite.getX() + checkDirection.getX();
-                    int belowY = sprite.getY() + checkDirection.getY();
-
-                    LevelObjectSprite spriteToCheck = getSpriteAt(nextX, belowY);
-                    if (spriteToCheck == null) {
-                        sprite.setPosition(nextX, belowY);
-                        sprite.setLastMove(checkDirection);
-                        break;
-                    }
-                    checkDirection = getNextDirection(checkDirection);
-                } while (checkDirection != firstDirection);
-            }
+    private void updateFromSimulationThread() {
+        if (simulationThread.postInput(inputSystem.getPlayerInput()) && !inputReset) {
+            // Tick took the input after it was read in this frame
+            inputSystem.resetPlayerInput();
+            simulationThread.postInput(inputSystem.getPlayerInput());
+        }
+        if (immediateInput && inputSystem.getPlayerInputTime() != InputSystem.NO_INPUT_TIME)
+            simulationThread.requestImmediateTick(inputSystem.getPlayerInputTime());
+
+        SimulationChanges changes = simulationThread.pollChanges();
+        if (changes != null) {
+            levelMirror.applyChanges(changes);
+            publishedSpriteCount = spritePool.getSpriteCount();
+            simulationThread.recycle(changes);
+            spriteUpdates.flush();
         }
+
+        float alpha = (System.nanoTime() - levelMirror.getTickNanoTime()) / (float) tickScheduler.getRealStepNanos();
+        spriteUpdates.interpolate(turbo ? 1f : MathUtils.clamp(alpha, 0f, 1f));
     }
 
-    private InputSystem.Direction getNextDirection(InputSystem.Direction direction) {
-        switch (direction) {
-            case Up:
-                return Right;
-            case Left:
-                return Up;
-            case Down:
-                return Left;
-            case Right:
-                return Down;
+    /**
+     * Processes the ticks scheduled by the scheduler, either in update or on the simulation thread.
+     */
+    private void processTicks(FixedStepScheduler scheduler, int tickCount) {
+        long firstTick = scheduler.getTickCount() - tickCount;
+        for (int i = 0; i < tickCount; i++) {
+            if (replayPlayer == null && isOutOfTime(scheduler.getTickTime(firstTick + i)))
+                break;
+            processTick();
         }
-        return null;
-    }
-
-    private InputSystem.Direction getPreviousDirection(InputSystem.Direction direction) {
-        switch (direction) {
-            case Up:
-                return Left;
-            case Left:
-                return Down;
-            case Down:
-                return Right;
-            case Right:
-                return Up;
+        if (replayPlayer == null && isOutOfTime(scheduler.getTime())) {
+            if (!simulation.isFinished())
+                replayRecorder.recordTimeOut();
+            simulation.runOutOfTime();
         }
-        return null;
-    }
-
-    private void processStones() {
-        for (LevelObjectSprite sprite : new Array.ArrayIterator<>(levelObjectSprites)) {
-            if (sprite.getType() == LevelObject.Stone) {
-                int belowX = sprite.getX();
-                int belowY = sprite.getY() - 1;
-
-                LevelObjectSprite spriteBelow = getSpriteAt(belowX, belowY);
-                if (spriteBelow != null && spriteBelow.getType().canBeCrushed()) {
-                    // Player can only be crushed by already falling stone
-                    if (sprite.isFalling() || spriteBelow.getType() != LevelObject.Player) {
-                        processStoneCrushedObject(spriteBelow);
-                        spriteBelow = getSpriteAt(belowX, belowY);
-                    }
-                }
+    }
 
-                boolean falling = false;
-                if (spriteBelow == null) {
-                    sprite.setPosition(belowX, belowY);
-                    falling = true;
-                } else if (getSpriteAt(belowX + 1, belowY) == null && getSpriteAt(belowX + 1, belowY + 1) == null) {
-                    sprite.setPosition(belowX + 1, belowY);
-                    falling = true;
-                } else if (getSpriteAt(belowX - 1, belowY) == null && getSpriteAt(belowX - 1, belowY + 1) == null) {
-                    sprite.setPosition(belowX - 1, belowY);
-                    falling = true;
-                }
-                sprite.setFalling(falling);
-            }
+    /**
+     * Processes the ticks back to back, until the frame budget runs out or the level finishes.
+     *
+     * @return number of ticks processed
+     */
+    private int processTurboTicks(FixedStepScheduler scheduler) {
+        long start = System.nanoTime();
+        int tickCount = 0;
+        while (!simulation.isFinished() && System.nanoTime() - start < TURBO_BUDGET_NANOS) {
+            scheduler.advanceToNextTick();
+            processTicks(scheduler, 1);
+            tickCount++;
         }
+        return tickCount;
     }
 
-    private void processStoneCrushedObject(LevelObjectSprite sprite) {
-        LevelObject type = sprite.getType();
-        switch (type) {
-            case Player:
-                finishReason = FinishReason.Crushed_By_Rock;
-                soundSystem.playSound("death");
-                break;
-            case Fox:
-                removeSprite(sprite);
-                soundSystem.playSound("fox-death");
-                break;
+    /**
+     * Moves the sprites to their cells, once the level is no longer updated.
+     */
+    public void finishMovement() {
+        spriteUpdates.finishMovement();
+    }
+
+    private boolean isOutOfTime(double time) {
+        return time >= gameLevel.getMaximumLevelTime();
+    }
+
+    private void processTick() {
+        GameEventRecorder.Span span = eventRecorder.beginTick();
+        if (replayPlayer != null) {
+            // Recorded run decides when the time runs out, so that it finishes the same way
+            if (replayPlayer.hasNextTick())
+                simulation.tick(replayPlayer.nextDirection());
+            else if (replayPlayer.isTimedOut())
+                simulation.runOutOfTime();
+        } else {
+            InputSystem.Direction requestedDirection = takePlayerInput();
+            if (!simulation.isFinished())
+                replayRecorder.recordTick(requestedDirection);
+            simulation.tick(requestedDirection);
+            playerIdle = requestedDirection == null;
         }
+        // Sprites belong to the render thread, the simulation thread reports the count the render thread published
+        int spriteCount = simulationThread.isRunning() ? publishedSpriteCount : spritePool.getSpriteCount();
+        eventRecorder.endTick(span, simulation.getTickCount(), spriteCount, simulation.getStonesMoved(),
+                simulation.getFoxesMoved());
     }
 
-    private void processPlayerMovement(InputSystem.Direction direction) {
-        int newX = playerSprite.getX() + direction.getX();
-        int newY = playerSprite.getY() + direction.getY();
-
-        LevelObjectSprite spriteAtPosition = getSpriteAt(newX, newY);
-        if (spriteAtPosition == null || spriteAtPosition.getType().canBeEntered()) {
-            if (spriteAtPosition != null)
-                processPlayerEntering(spriteAtPosition);
-            playerSprite.getPropertyContainer().setValue("Texture", textureAtlas.findRegion("player-" + direction.getName()));
-            playerSprite.setPosition(newX, newY);
-        } else if (spriteAtPosition.getType().canBeMoved() &&
-                (direction == Left || direction == Right)) {
-            int otherX = newX + direction.getX();
-            int otherY = newY + direction.getY();
-            if (getSpriteAt(otherX, otherY) == null) {
-                spriteAtPosition.setPosition(otherX, otherY);
-                playerSprite.getPropertyContainer().setValue("Texture", textureAtlas.findRegion("player-" + direction.getName()));
-                playerSprite.setPosition(newX, newY);
-            }
+    /**
+     * Checks, if a key press can be processed in a tick before the tick is due. Only a player, who did not move in
+     * the last tick, can start moving early, so the player never moves faster than one cell per step.
+     */
+    private boolean canProcessImmediateTick() {
+        return replayPlayer == null && playerIdle && !simulation.isFinished();
+    }
+
+    private InputSystem.Direction takePlayerInput() {
+        if (simulationThread.isRunning())
+            return simulationThread.takeInput();
+
+        InputSystem.Direction requestedDirection = inputSystem.getPlayerInput();
+        inputSystem.resetPlayerInput();
+        return requestedDirection;
+    }
+
+    /**
+     * Stops the simulation thread, if it is running, and releases the meshes of the static tiles.
+     */
+    public void dispose() {
+        simulationThread.stop();
+        staticTileLayer.dispose();
+    }
+
+    @Override
+    public void objectMoved(int fromX, int fromY, int toX, int toY) {
+        boolean fromSpawned = isSpawned(fromX, fromY);
+        boolean toSpawned = isSpawned(toX, toY);
+        if (fromSpawned && toSpawned) {
+            spriteGrid.getSpriteAt(fromX, fromY).setPosition(toX, toY);
+        } else if (fromSpawned) {
+            despawnObject(fromX, fromY);
+        } else if (toSpawned) {
+            spawnObject(levelState.getObjectAt(toX, toY), toX, toY);
         }
     }
 
-    private void processPlayerEntering(LevelObjectSprite sprite) {
-        switch (sprite.getType()) {
-            case Dirt:
-                removeSprite(sprite);
-                soundSystem.playSound("eat-dirt");
-                break;
-            case Grub:
-                removeSprite(sprite);
-                soundSystem.playSound("eat-grub");
-                collectablesCollected++;
-                updateCollectablesCount();
-                break;
-            case Exit_Active:
-                removeSprite(sprite);
-                soundSystem.playSound("exit-level");
-                gameFinished();
-                break;
+    @Override
+    public void playerMoved(InputSystem.Direction direction, int fromX, int fromY, int toX, int toY) {
+        playerDirection = direction;
+        if (isSpawned(fromX, fromY) && isSpawned(toX, toY)) {
+            LevelObjectSprite playerSprite = spriteGrid.getSpriteAt(fromX, fromY);
+            playerSprite.setTexture(getPlayerRegion());
+            playerSprite.setPosition(toX, toY);
+        } else {
+            objectMoved(fromX, fromY, toX, toY);
         }
     }
 
-    private void gameFinished() {
-        finishReason = FinishReason.Success;
+    @Override
+    public void objectRemoved(LevelObject levelObject, int x, int y) {
+        if (levelObject.isStaticTile())
+            staticTileLayer.cellChanged(x, y);
+        else if (isSpawned(x, y))
+            despawnObject(x, y);
     }
 
-    private void removeSprite(LevelObjectSprite sprite) {
-        sprite.removeTag("Animated");
-        levelObjectSprites.removeValue(sprite, true);
+    @Override
+    public void objectSpawned(LevelObject levelObject, int x, int y) {
+        if (levelObject.isStaticTile())
+            staticTileLayer.cellChanged(x, y);
+        else if (isSpawned(x, y))
+            spawnObject(levelObject, x, y);
     }
 
-    private void updateCollectablesCount() {
-        if (collectablesCollected == getCollectablesRequired()) {
-            LevelObjectSprite exit = getSpriteOfType(LevelObject.Exit_Inactive);
-            removeSprite(exit);
-            LevelObjectSprite sprite = spawnObject(LevelObject.Exit_Active, exit.getX(), exit.getY());
-            soundSystem.playSound("open-door");
-            levelObjectSprites.add(sprite);
+    @Override
+    public void eventOccurred(SimulationEvent event) {
+        switch (event) {
+            case DirtEaten:
+                soundSystem.playSound("eat-dirt");
+                break;
+            case GrubEaten:
+                soundSystem.playSound("eat-grub");
+                break;
+            case ExitOpened:
+                soundSystem.playSound("open-door");
+                break;
+            case ExitEntered:
+                soundSystem.playSound("exit-level");
+                break;
+            case FoxCrushed:
+                soundSystem.playSound("fox-death");
+                break;
+            case PlayerCrushed:
+                soundSystem.playSound("death");
+                break;
         }
     }
 }
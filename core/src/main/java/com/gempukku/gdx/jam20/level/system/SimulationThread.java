@@ -0,0 +1,259 @@
+package com.gempukku.gdx.jam20.level.system;
+
+import com.gempukku.gdx.jam20.level.simulation.LevelSimulation;
+import com.gempukku.gdx.jam20.level.simulation.SimulationChanges;
+import com.gempukku.gdx.jam20.time.FixedStepScheduler;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs the ticks of a level on its own thread at the tick rate, so the cost of a tick does not affect the frame time.
+ * <p>
+ * Changes of the simulation are recorded into {@link SimulationChanges}, that are handed over to the render thread
+ * without locking. There are three buffers - one being recorded, one published and one being applied by the render
+ * thread. If the render thread has not taken the published changes yet, the following ticks are recorded into the
+ * same buffer, until it can be published. Player input is handed over the other way, the latest input replaces the
+ * previous one, if the simulation has not taken it yet.
+ * <p>
+ * Render thread can also request a tick to be processed immediately, with the time of the key press that caused it.
+ * The tick is only processed, if the condition given to the thread allows it, the following ticks are re-phased to
+ * be a step apart from the key press.
+ * <p>
+ * In turbo mode the ticks are processed back to back, regardless of the time, and the changes are published after
+ * each batch of ticks.
+ */
+class SimulationThread implements Runnable {
+    // How long to wait, when the render thread has not taken the published changes yet
+    private static final long PUBLISH_RETRY_NANOS = 1000000L;
+    private static final long PAUSED_WAIT_NANOS = 10000000L;
+    // How long the ticks are processed in turbo mode, before the changes are published
+    private static final long TURBO_BATCH_NANOS = 4000000L;
+    private static final int INPUT_TAKEN = -1;
+    private static final int NO_INPUT = InputSystem.Direction.values().length;
+    private static final InputSystem.Direction[] DIRECTIONS = InputSystem.Direction.values();
+    private static final long NO_REQUEST = Long.MIN_VALUE;
+
+    interface TickProcessor {
+        /**
+         * Processes the ticks scheduled by the scheduler, called on the simulation thread.
+         */
+        void processTicks(FixedStepScheduler scheduler, int tickCount);
+    }
+
+    private final LevelSimulation simulation;
+    private final TickProcessor tickProcessor;
+    private final BooleanSupplier immediateTickCondition;
+    private final FixedStepScheduler scheduler;
+
+    private final AtomicReference<SimulationChanges> publishedChanges = new AtomicReference<>();
+    private final AtomicReference<SimulationChanges> recycledChanges = new AtomicReference<>();
+    private final AtomicInteger input = new AtomicInteger(INPUT_TAKEN);
+    private final AtomicLong immediateTickRequest = new AtomicLong(NO_REQUEST);
+    private SimulationChanges recordedChanges = new SimulationChanges();
+    private boolean hasRecordedChanges;
+
+    private volatile boolean running;
+    private volatile boolean paused;
+    private volatile float speed = 1f;
+    private volatile boolean turbo;
+    private Thread thread;
+
+    /**
+     * @param immediateTickCondition checks on the simulation thread, if a requested immediate tick can be processed
+     */
+    SimulationThread(LevelSimulation simulation, TickProcessor tickProcessor, BooleanSupplier immediateTickCondition,
+                     FixedStepScheduler scheduler) {
+        this.simulation = simulation;
+        this.tickProcessor = tickProcessor;
+        this.immediateTickCondition = immediateTickCondition;
+        this.scheduler = scheduler;
+    }
+
+    boolean isRunning() {
+        return thread != null;
+    }
+
+    /**
+     * Starts the simulation of the level loaded into the simulation, changes published by a previous run are dropped.
+     *
+     * @param stepNanos duration of a step of the level
+     */
+    void start(long stepNanos) {
+        scheduler.setStepNanos(stepNanos);
+        scheduler.reset();
+        SimulationChanges published = publishedChanges.getAndSet(null);
+        if (published != null)
+            recycle(published);
+        recordedChanges.clear();
+        hasRecordedChanges = false;
+        input.set(INPUT_TAKEN);
+        immediateTickRequest.set(NO_REQUEST);
+        paused = false;
+
+        simulation.setListener(recordedChanges);
+        running = true;
+        thread = new Thread(this, "Simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the simulation and waits for the thread to finish.
+     */
+    void stop() {
+        if (thread != null) {
+            running = false;
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException exp) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+    }
+
+    void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    void setSpeed(float speed) {
+        this.speed = speed;
+    }
+
+    void setTurbo(boolean turbo) {
+        this.turbo = turbo;
+        if (thread != null)
+            LockSupport.unpark(thread);
+    }
+
+    /**
+     * Returns the changes published since the last call, or null if there are none. Returned changes have to be
+     * recycled, once they are applied.
+     */
+    SimulationChanges pollChanges() {
+        return publishedChanges.getAndSet(null);
+    }
+
+    void recycle(SimulationChanges changes) {
+        changes.clear();
+        recycledChanges.set(changes);
+    }
+
+    /**
+     * Checks, if the last input handed over was already taken by a tick.
+     */
+    boolean isInputTaken() {
+        return input.get() == INPUT_TAKEN;
+    }
+
+    /**
+     * Hands over the current player input.
+     *
+     * @return true, if the previous input was taken by a tick
+     */
+    boolean postInput(InputSystem.Direction direction) {
+        int previous = input.getAndSet((direction != null) ? direction.ordinal() : NO_INPUT);
+        return previous == INPUT_TAKEN;
+    }
+
+    /**
+     * Requests a tick to be processed as soon as possible, instead of when it is due.
+     *
+     * @param pressTime time of the key press, in the time base of {@link System#nanoTime()}
+     */
+    void requestImmediateTick(long pressTime) {
+        if (immediateTickRequest.getAndSet(pressTime) == NO_REQUEST && thread != null)
+            LockSupport.unpark(thread);
+    }
+
+    /**
+     * Takes the player input for a tick, called on the simulation thread.
+     */
+    InputSystem.Direction takeInput() {
+        int value = input.getAndSet(INPUT_TAKEN);
+        return (value >= 0 && value < NO_INPUT) ? DIRECTIONS[value] : null;
+    }
+
+    @Override
+    public void run() {
+        long lastTime = System.nanoTime();
+        while (running) {
+            long time = System.nanoTime();
+            scheduler.setSpeed(speed);
+            boolean turboTicks = turbo;
+            if (!paused && !simulation.isFinished()) {
+                long pressTime = immediateTickRequest.getAndSet(NO_REQUEST);
+                int tickCount;
+                if (turboTicks) {
+                    tickCount = processTurboTicks();
+                    time = System.nanoTime();
+                } else {
+                    tickCount = scheduler.advanceNanos(time - lastTime);
+                    if (tickCount == 0 && pressTime != NO_REQUEST && immediateTickCondition.getAsBoolean()) {
+                        scheduler.rephase(time - pressTime);
+                        tickCount = 1;
+                    }
+                    if (tickCount > 0)
+                        tickProcessor.processTicks(scheduler, tickCount);
+                }
+                if (tickCount > 0) {
+                    long tickNanoTime = time - Math.round(scheduler.getAlpha() * scheduler.getRealStepNanos());
+                    recordedChanges.captureState(simulation, scheduler.getTime(), tickNanoTime);
+                    hasRecordedChanges = true;
+                }
+            }
+            lastTime = time;
+
+            if (hasRecordedChanges && publishChanges())
+                hasRecordedChanges = false;
+            if (simulation.isFinished() && !hasRecordedChanges)
+                break;
+            // Turbo ticks continue right away, changes not taken yet are published after the next batch
+            if (turboTicks && !paused && !simulation.isFinished())
+                continue;
+
+            long waitNanos;
+            if (hasRecordedChanges)
+                waitNanos = PUBLISH_RETRY_NANOS;
+            else if (paused)
+                waitNanos = PAUSED_WAIT_NANOS;
+            else
+                waitNanos = scheduler.getNanosToNextTick();
+            LockSupport.parkNanos(this, waitNanos);
+        }
+    }
+
+    /**
+     * Processes the ticks back to back, until the batch time runs out or the level finishes.
+     *
+     * @return number of ticks processed
+     */
+    private int processTurboTicks() {
+        long start = System.nanoTime();
+        int tickCount = 0;
+        while (!simulation.isFinished() && System.nanoTime() - start < TURBO_BATCH_NANOS) {
+            scheduler.advanceToNextTick();
+            tickProcessor.processTicks(scheduler, 1);
+            tickCount++;
+        }
+        return tickCount;
+    }
+
+    private boolean publishChanges() {
+        if (publishedChanges.get() != null)
+            return false;
+
+        SimulationChanges nextChanges = recycledChanges.getAndSet(null);
+        if (nextChanges == null)
+            nextChanges = new SimulationChanges();
+        simulation.setListener(nextChanges);
+        publishedChanges.set(recordedChanges);
+        recordedChanges = nextChanges;
+        return true;
+    }
+}
@@ -4,6 +4,8 @@ import com.badlogic.gdx.assets.AssetManager;
 import com.badlogic.gdx.audio.Music;
 import com.badlogic.gdx.audio.Sound;
 import com.badlogic.gdx.utils.Disposable;
+import com.gempukku.gdx.jam20.profiler.GameEventRecorder;
+import com.gempukku.gdx.jam20.profiler.GameEvents;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -20,6 +22,7 @@ public class SoundSystem implements Disposable {
     private AssetManager assetManager = new AssetManager();
     private Map<String, String> soundFileNameMap = new HashMap<>();
     private Map<String, String> musicFileNameMap = new HashMap<>();
+    private final GameEventRecorder eventRecorder = GameEvents.getRecorder();
 
     public float getMusicVolume() {
         return musicVolume;
@@ -73,7 +76,13 @@ public class SoundSystem implements Disposable {
     }
 
     public void update(float delta) {
-        assetManager.update();
+        if (assetManager.isFinished()) {
+            assetManager.update();
+        } else {
+            GameEventRecorder.Span span = eventRecorder.beginSoundAssetLoad();
+            assetManager.update();
+            eventRecorder.endSoundAssetLoad(span, assetManager.getLoadedAssets(), assetManager.getQueuedAssets());
+        }
         if (switchMusic) {
             Music music = assetManager.get(musicFileNameMap.get(playedMusicName), Music.class, false);
             if (music != null) {
@@ -0,0 +1,247 @@
+package com.gempukku.gdx.jam20.level.system;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.Pool;
+import com.gempukku.gdx.jam20.level.LevelObject;
+import com.gempukku.gdx.jam20.level.simulation.LevelState;
+
+import java.util.Comparator;
+
+/**
+ * Draws the objects that never move (see {@link LevelObject#isStaticTile()}) as meshes, one per square chunk of cells,
+ * instead of a sprite per cell.
+ * <p>
+ * Only chunks in the visible area of the level are kept. A chunk is rebuilt when a cell in it changes, chunks changed
+ * since the last frame are rebuilt before they are drawn. Chunks that entered the visible area are built nearest to
+ * the player first, the ones close to the player in the same frame, the rest within the per-frame budget. All static
+ * tiles have to be on the same page of the atlas.
+ */
+public class StaticTileLayer implements Disposable {
+    private static final int CHUNK_SIZE = 16;
+    private static final int MAX_QUADS = CHUNK_SIZE * CHUNK_SIZE;
+    // Chunks up to this distance (in chunks) from the player are built in the same frame, the rest within the budget
+    private static final int SYNC_BUILD_DISTANCE = 1;
+    private static final long BUILD_BUDGET_NANOS = 1000000L;
+
+    private static final String VERTEX_SHADER = "attribute vec2 " + ShaderProgram.POSITION_ATTRIBUTE + ";\n"
+            + "attribute vec2 " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n"
+            + "uniform mat4 u_projTrans;\n"
+            + "varying vec2 v_texCoords;\n"
+            + "void main() {\n"
+            + "    v_texCoords = " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n"
+            + "    gl_Position = u_projTrans * vec4(" + ShaderProgram.POSITION_ATTRIBUTE + ", 0.0, 1.0);\n"
+            + "}\n";
+    private static final String FRAGMENT_SHADER = "#ifdef GL_ES\n"
+            + "precision mediump float;\n"
+            + "#endif\n"
+            + "varying vec2 v_texCoords;\n"
+            + "uniform sampler2D u_texture;\n"
+            + "void main() {\n"
+            + "    gl_FragColor = texture2D(u_texture, v_texCoords);\n"
+            + "}\n";
+
+    private final StaticTileMeshBuilder meshBuilder = new StaticTileMeshBuilder();
+    private final float[] vertices = new float[MAX_QUADS * StaticTileMeshBuilder.FLOATS_PER_QUAD];
+    private final short[] indices = new short[MAX_QUADS * StaticTileMeshBuilder.INDICES_PER_QUAD];
+    // Chunks in the visible area, by chunk index
+    private final IntMap<Chunk> chunks = new IntMap<>();
+    // Chunks that were not built yet, nearest to the player first
+    private final Array<Chunk> pendingChunks = new Array<>();
+    private final Comparator<Chunk> distanceComparator = new Comparator<Chunk>() {
+        @Override
+        public int compare(Chunk o1, Chunk o2) {
+            return Integer.compare(o1.distance, o2.distance);
+        }
+    };
+    private final Array<Chunk> createdChunks = new Array<>();
+    private final Pool<Chunk> chunkPool = new Pool<Chunk>() {
+        @Override
+        protected Chunk newObject() {
+            Chunk chunk = new Chunk();
+            createdChunks.add(chunk);
+            return chunk;
+        }
+    };
+
+    private LevelState levelState;
+    private int chunksWide;
+    private Texture texture;
+    private ShaderProgram shader;
+
+    public StaticTileLayer() {
+        StaticTileMeshBuilder.fillIndices(indices, MAX_QUADS);
+    }
+
+    public void setTextureAtlas(TextureAtlas textureAtlas) {
+        texture = null;
+        for (LevelObject levelObject : LevelObject.values()) {
+            if (levelObject.isStaticTile()) {
+                TextureAtlas.AtlasRegion region = textureAtlas.findRegion(levelObject.getSpriteRegionName());
+                if (region != null) {
+                    meshBuilder.setRegion(levelObject, region.getU(), region.getV(), region.getU2(), region.getV2());
+                    texture = region.getTexture();
+                }
+            }
+        }
+        for (IntMap.Entry<Chunk> chunk : chunks)
+            chunk.value.dirty = true;
+    }
+
+    public void loadLevel(LevelState levelState) {
+        unloadLevel();
+        this.levelState = levelState;
+        chunksWide = (levelState.getWidth() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+
+    public void unloadLevel() {
+        for (IntMap.Entry<Chunk> chunk : chunks)
+            chunkPool.free(chunk.value);
+        chunks.clear();
+        pendingChunks.clear();
+        levelState = null;
+    }
+
+    /**
+     * Keeps only the chunks overlapping the area, inclusive bounds in cells. Chunks that entered the area are built
+     * nearest to the player first.
+     */
+    public void setVisibleArea(int minX, int minY, int maxX, int maxY, int playerX, int playerY) {
+        int minChunkX = minX / CHUNK_SIZE;
+        int minChunkY = minY / CHUNK_SIZE;
+        int maxChunkX = maxX / CHUNK_SIZE;
+        int maxChunkY = maxY / CHUNK_SIZE;
+
+        IntMap.Entries<Chunk> entries = chunks.entries();
+        while (entries.hasNext()) {
+            Chunk chunk = entries.next().value;
+            if (chunk.chunkX < minChunkX || chunk.chunkX > maxChunkX || chunk.chunkY < minChunkY || chunk.chunkY > maxChunkY) {
+                entries.remove();
+                if (!chunk.built)
+                    pendingChunks.removeValue(chunk, true);
+                chunkPool.free(chunk);
+            }
+        }
+        int playerChunkX = playerX / CHUNK_SIZE;
+        int playerChunkY = playerY / CHUNK_SIZE;
+        for (int chunkY = minChunkY; chunkY <= maxChunkY; chunkY++) {
+            for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+                int chunkIndex = chunkY * chunksWide + chunkX;
+                if (!chunks.containsKey(chunkIndex)) {
+                    Chunk chunk = chunkPool.obtain();
+                    chunk.chunkX = chunkX;
+                    chunk.chunkY = chunkY;
+                    chunk.built = false;
+                    chunks.put(chunkIndex, chunk);
+                    pendingChunks.add(chunk);
+                }
+            }
+        }
+        for (Chunk chunk : pendingChunks)
+            chunk.distance = Math.max(Math.abs(chunk.chunkX - playerChunkX), Math.abs(chunk.chunkY - playerChunkY));
+        pendingChunks.sort(distanceComparator);
+    }
+
+    /**
+     * Marks the chunk of the cell for rebuilding, if it is in the visible area.
+     */
+    public void cellChanged(int x, int y) {
+        Chunk chunk = chunks.get((y / CHUNK_SIZE) * chunksWide + x / CHUNK_SIZE);
+        if (chunk != null)
+            chunk.dirty = true;
+    }
+
+    /**
+     * Returns the number of chunks in the visible area.
+     */
+    public int getChunkCount() {
+        return chunks.size;
+    }
+
+    /**
+     * Rebuilds the changed chunks and draws all the chunks in the visible area. Has to be called with blending and
+     * depth writes in the state left by ending a {@link com.badlogic.gdx.graphics.g2d.Batch}, the same state is
+     * restored afterwards.
+     */
+    public void render(Matrix4 projection) {
+        if (levelState == null || texture == null || chunks.size == 0)
+            return;
+        if (shader == null) {
+            shader = new ShaderProgram(VERTEX_SHADER, FRAGMENT_SHADER);
+            if (!shader.isCompiled())
+                Gdx.app.error("StaticTileLayer", "Unable to compile shader: " + shader.getLog());
+        }
+
+        Gdx.gl.glDepthMask(false);
+        Gdx.gl.glEnable(GL20.GL_BLEND);
+        Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+        texture.bind(0);
+        shader.bind();
+        shader.setUniformMatrix("u_projTrans", projection);
+        shader.setUniformi("u_texture", 0);
+        long start = System.nanoTime();
+        while (pendingChunks.size > 0) {
+            Chunk chunk = pendingChunks.first();
+            if (chunk.distance > SYNC_BUILD_DISTANCE && System.nanoTime() - start > BUILD_BUDGET_NANOS)
+                break;
+            pendingChunks.removeIndex(0);
+            rebuild(chunk);
+        }
+        for (IntMap.Entry<Chunk> entry : chunks) {
+            Chunk chunk = entry.value;
+            if (chunk.built && chunk.dirty)
+                rebuild(chunk);
+            if (chunk.built && chunk.quadCount > 0)
+                chunk.mesh.render(shader, GL20.GL_TRIANGLES, 0, chunk.quadCount * StaticTileMeshBuilder.INDICES_PER_QUAD);
+        }
+        Gdx.gl.glDisable(GL20.GL_BLEND);
+        Gdx.gl.glDepthMask(true);
+    }
+
+    private void rebuild(Chunk chunk) {
+        chunk.quadCount = meshBuilder.buildChunk(levelState, chunk.chunkX, chunk.chunkY, CHUNK_SIZE, vertices);
+        if (chunk.mesh == null) {
+            chunk.mesh = new Mesh(true, MAX_QUADS * StaticTileMeshBuilder.VERTICES_PER_QUAD, indices.length,
+                    new VertexAttribute(VertexAttributes.Usage.Position, 2, ShaderProgram.POSITION_ATTRIBUTE),
+                    new VertexAttribute(VertexAttributes.Usage.TextureCoordinates, 2, ShaderProgram.TEXCOORD_ATTRIBUTE + "0"));
+            chunk.mesh.setIndices(indices);
+        }
+        chunk.mesh.setVertices(vertices, 0, chunk.quadCount * StaticTileMeshBuilder.FLOATS_PER_QUAD);
+        chunk.built = true;
+        chunk.dirty = false;
+    }
+
+    @Override
+    public void dispose() {
+        for (Chunk chunk : createdChunks) {
+            if (chunk.mesh != null)
+                chunk.mesh.dispose();
+            chunk.mesh = null;
+        }
+        if (shader != null)
+            shader.dispose();
+        shader = null;
+    }
+
+    private static class Chunk {
+        private int chunkX;
+        private int chunkY;
+        // Distance from the player, when the chunk entered the visible area
+        private int distance;
+        private boolean built;
+        private boolean dirty;
+        private int quadCount;
+        // Kept while the chunk is in the pool, so that it can be reused by another chunk
+        private Mesh mesh;
+    }
+}
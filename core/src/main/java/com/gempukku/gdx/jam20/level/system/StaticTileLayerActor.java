@@ -0,0 +1,26 @@
+package com.gempukku.gdx.jam20.level.system;
+
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.scenes.scene2d.Actor;
+
+/**
+ * Draws the static tile layer as a part of a stage, so that it is rendered by a UI renderer of the pipeline before
+ * the sprites. The layer is drawn with the projection of the game camera, not the one of the stage.
+ */
+public class StaticTileLayerActor extends Actor {
+    private final StaticTileLayer staticTileLayer;
+    private final Camera camera;
+
+    public StaticTileLayerActor(StaticTileLayer staticTileLayer, Camera camera) {
+        this.staticTileLayer = staticTileLayer;
+        this.camera = camera;
+    }
+
+    @Override
+    public void draw(Batch batch, float parentAlpha) {
+        batch.end();
+        staticTileLayer.render(camera.combined);
+        batch.begin();
+    }
+}
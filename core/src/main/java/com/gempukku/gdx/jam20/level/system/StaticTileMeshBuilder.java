@@ -0,0 +1,111 @@
+package com.gempukku.gdx.jam20.level.system;
+
+import com.gempukku.gdx.jam20.level.LevelObject;
+import com.gempukku.gdx.jam20.level.simulation.LevelState;
+
+/**
+ * Builds the vertices of the static tiles in an area of the level, one quad per cell with a static tile. Each vertex
+ * consists of the position (in cells) and texture coordinates. Building does not need a graphics context.
+ */
+public class StaticTileMeshBuilder {
+    public static final int FLOATS_PER_VERTEX = 4;
+    public static final int VERTICES_PER_QUAD = 4;
+    public static final int INDICES_PER_QUAD = 6;
+    public static final int FLOATS_PER_QUAD = FLOATS_PER_VERTEX * VERTICES_PER_QUAD;
+
+    private static final LevelObject[] LEVEL_OBJECTS = LevelObject.values();
+
+    // Texture coordinates (u, v, u2, v2) of each type of level object
+    private final float[] regionCoordinates = new float[LEVEL_OBJECTS.length * 4];
+    private final boolean[] hasRegion = new boolean[LEVEL_OBJECTS.length];
+
+    /**
+     * Sets the texture coordinates of a static tile, v is the top edge of the region.
+     */
+    public void setRegion(LevelObject levelObject, float u, float v, float u2, float v2) {
+        int index = levelObject.ordinal() * 4;
+        regionCoordinates[index] = u;
+        regionCoordinates[index + 1] = v;
+        regionCoordinates[index + 2] = u2;
+        regionCoordinates[index + 3] = v2;
+        hasRegion[levelObject.ordinal()] = true;
+    }
+
+    /**
+     * Writes the quads of the static tiles in a square chunk of cells into the vertices. Chunks at the top and right
+     * edge of the level are cut to the size of the level.
+     *
+     * @param chunkX    column of the chunk, in chunks
+     * @param chunkY    row of the chunk, in chunks
+     * @param chunkSize number of cells on a side of a chunk
+     * @param vertices  array to write into, has to have space for a quad for each cell of the chunk
+     * @return number of quads written
+     */
+    public int buildChunk(LevelState levelState, int chunkX, int chunkY, int chunkSize, float[] vertices) {
+        int minX = chunkX * chunkSize;
+        int minY = chunkY * chunkSize;
+        int maxX = Math.min(levelState.getWidth(), minX + chunkSize);
+        int maxY = Math.min(levelState.getHeight(), minY + chunkSize);
+        return build(levelState, minX, minY, maxX, maxY, vertices);
+    }
+
+    /**
+     * Writes the quads of the static tiles in the area into the vertices.
+     *
+     * @param minX     first column of the area
+     * @param minY     first row of the area
+     * @param maxX     column after the last one of the area
+     * @param maxY     row after the last one of the area
+     * @param vertices array to write into, has to have space for a quad for each cell of the area
+     * @return number of quads written
+     */
+    public int build(LevelState levelState, int minX, int minY, int maxX, int maxY, float[] vertices) {
+        int quadCount = 0;
+        int index = 0;
+        for (int y = minY; y < maxY; y++) {
+            for (int x = minX; x < maxX; x++) {
+                LevelObject levelObject = levelState.getObjectAt(x, y);
+                if (!levelObject.isStaticTile() || !hasRegion[levelObject.ordinal()])
+                    continue;
+
+                int region = levelObject.ordinal() * 4;
+                float u = regionCoordinates[region];
+                float v = regionCoordinates[region + 1];
+                float u2 = regionCoordinates[region + 2];
+                float v2 = regionCoordinates[region + 3];
+
+                // Counter-clockwise, starting at the bottom left corner
+                index = putVertex(vertices, index, x, y, u, v2);
+                index = putVertex(vertices, index, x + 1, y, u2, v2);
+                index = putVertex(vertices, index, x + 1, y + 1, u2, v);
+                index = putVertex(vertices, index, x, y + 1, u, v);
+                quadCount++;
+            }
+        }
+        return quadCount;
+    }
+
+    /**
+     * Fills the indices of two triangles for each quad.
+     */
+    public static void fillIndices(short[] indices, int quadCount) {
+        for (int i = 0; i < quadCount; i++) {
+            int vertex = i * VERTICES_PER_QUAD;
+            int index = i * INDICES_PER_QUAD;
+            indices[index] = (short) vertex;
+            indices[index + 1] = (short) (vertex + 1);
+            indices[index + 2] = (short) (vertex + 2);
+            indices[index + 3] = (short) (vertex + 2);
+            indices[index + 4] = (short) (vertex + 3);
+            indices[index + 5] = (short) vertex;
+        }
+    }
+
+    private static int putVertex(float[] vertices, int index, float x, float y, float u, float v) {
+        vertices[index] = x;
+        vertices[index + 1] = y;
+        vertices[index + 2] = u;
+        vertices[index + 3] = v;
+        return index + FLOATS_PER_VERTEX;
+    }
+}
@@ -0,0 +1,34 @@
+package com.gempukku.gdx.jam20.profiler;
+
+/**
+ * Frame that took longer than the hitch threshold of {@link FrameProfiler}.
+ */
+public class FrameHitch {
+    private final long[] sectionNanos = new long[FrameSection.values().length];
+    private long frame;
+    private long tick;
+    private int spriteCount;
+
+    void set(long frame, long tick, int spriteCount, long[] sectionNanos) {
+        this.frame = frame;
+        this.tick = tick;
+        this.spriteCount = spriteCount;
+        System.arraycopy(sectionNanos, 0, this.sectionNanos, 0, this.sectionNanos.length);
+    }
+
+    public long getFrame() {
+        return frame;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public int getSpriteCount() {
+        return spriteCount;
+    }
+
+    public long getSectionNanos(FrameSection section) {
+        return sectionNanos[section.ordinal()];
+    }
+}
@@ -0,0 +1,219 @@
+package com.gempukku.gdx.jam20.profiler;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.StringBuilder;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Measures the time spent in the parts of a frame. Durations of the frames in a rolling window are kept both as raw
+ * samples, that can be written out as CSV, and in histograms, from which the percentiles are read. A section is only
+ * sampled into its histogram in the frames it ran in, so each section has its own number of samples. Frames, that take
+ * longer than the hitch threshold, are captured together with the tick number and the number of sprites.
+ * <p>
+ * While disabled, measuring a section only checks a flag.
+ */
+public class FrameProfiler {
+    private static final FrameSection[] SECTIONS = FrameSection.values();
+    private static final int FRAME = FrameSection.Frame.ordinal();
+    private static final float[] REPORTED_PERCENTILES = {0.5f, 0.9f, 0.99f};
+
+    private final int windowSize;
+    private final long hitchThresholdNanos;
+    private boolean enabled;
+
+    // Raw samples of the frames in the window, indexed by section and frame
+    private final long[][] sectionSamples;
+    private final boolean[][] sectionRanSamples;
+    private final long[] tickSamples;
+    private final int[] spriteSamples;
+    private final RollingHistogram[] histograms = new RollingHistogram[SECTIONS.length];
+    private int sampleCount;
+    private int nextSample;
+
+    private final FrameHitch[] hitches;
+    private int hitchCount;
+    private int nextHitch;
+
+    private final long[] currentFrame = new long[SECTIONS.length];
+    private final boolean[] currentSectionsRan = new boolean[SECTIONS.length];
+    private long frameStart;
+    private long frameNumber;
+
+    public FrameProfiler(int windowSize, float hitchThreshold, int maxHitches) {
+        this.windowSize = windowSize;
+        this.hitchThresholdNanos = Math.round(hitchThreshold * 1000000000d);
+        this.sectionSamples = new long[SECTIONS.length][windowSize];
+        this.sectionRanSamples = new boolean[SECTIONS.length][windowSize];
+        this.tickSamples = new long[windowSize];
+        this.spriteSamples = new int[windowSize];
+        for (int i = 0; i < histograms.length; i++)
+            histograms[i] = new RollingHistogram();
+        this.hitches = new FrameHitch[maxHitches];
+        for (int i = 0; i < maxHitches; i++)
+            hitches[i] = new FrameHitch();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables or disables the profiler, samples collected so far are dropped.
+     */
+    public void setEnabled(boolean enabled) {
+        if (this.enabled != enabled) {
+            this.enabled = enabled;
+            for (RollingHistogram histogram : histograms)
+                histogram.clear();
+            sampleCount = 0;
+            nextSample = 0;
+            hitchCount = 0;
+            nextHitch = 0;
+        }
+    }
+
+    public void startFrame() {
+        if (enabled) {
+            for (int i = 0; i < currentFrame.length; i++) {
+                currentFrame[i] = 0;
+                currentSectionsRan[i] = false;
+            }
+            frameStart = System.nanoTime();
+        }
+    }
+
+    /**
+     * Returns the start time of a section, to be passed to {@link #endSection(FrameSection, long)}.
+     */
+    public long startSection() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public void endSection(FrameSection section, long start) {
+        if (enabled) {
+            currentFrame[section.ordinal()] += System.nanoTime() - start;
+            currentSectionsRan[section.ordinal()] = true;
+        }
+    }
+
+    /**
+     * Stores the measured frame into the window.
+     *
+     * @param tick        number of the last tick of the level
+     * @param spriteCount number of sprites of the level
+     */
+    public void endFrame(long tick, int spriteCount) {
+        if (!enabled)
+            return;
+
+        currentFrame[FRAME] = System.nanoTime() - frameStart;
+        currentSectionsRan[FRAME] = true;
+        frameNumber++;
+
+        if (sampleCount == windowSize) {
+            for (int i = 0; i < SECTIONS.length; i++) {
+                if (sectionRanSamples[i][nextSample])
+                    histograms[i].remove(sectionSamples[i][nextSample]);
+            }
+        } else {
+            sampleCount++;
+        }
+        for (int i = 0; i < SECTIONS.length; i++) {
+            sectionSamples[i][nextSample] = currentFrame[i];
+            sectionRanSamples[i][nextSample] = currentSectionsRan[i];
+            if (currentSectionsRan[i])
+                histograms[i].add(currentFrame[i]);
+        }
+        tickSamples[nextSample] = tick;
+        spriteSamples[nextSample] = spriteCount;
+        nextSample = (nextSample + 1) % windowSize;
+
+        if (currentFrame[FRAME] > hitchThresholdNanos) {
+            hitches[nextHitch].set(frameNumber, tick, spriteCount, currentFrame);
+            nextHitch = (nextHitch + 1) % hitches.length;
+            hitchCount = Math.min(hitchCount + 1, hitches.length);
+        }
+    }
+
+    public long getPercentile(FrameSection section, float fraction) {
+        return histograms[section.ordinal()].getPercentile(fraction);
+    }
+
+    /**
+     * Returns the number of frames in the window, in which the section ran.
+     */
+    public int getSampleCount(FrameSection section) {
+        return histograms[section.ordinal()].getSize();
+    }
+
+    public int getHitchCount() {
+        return hitchCount;
+    }
+
+    /**
+     * Returns a captured hitch, index 0 is the most recent one.
+     */
+    public FrameHitch getHitch(int index) {
+        return hitches[(nextHitch - 1 - index + hitches.length) % hitches.length];
+    }
+
+    /**
+     * Appends a table of percentiles of each section in milliseconds, over the frames the section ran in, followed by
+     * the most recent hitches.
+     */
+    public void appendReport(StringBuilder report, int maxHitches) {
+        report.append("Section               p50       p90       p99  frames\n");
+        for (FrameSection section : SECTIONS) {
+            report.append(section.getText());
+            for (int i = section.getText().length(); i < 15; i++)
+                report.append(' ');
+            for (float percentile : REPORTED_PERCENTILES) {
+                report.append(' ');
+                appendMillis(report, histograms[section.ordinal()].getPercentile(percentile));
+            }
+            report.append(' ').append(histograms[section.ordinal()].getSize(), 7, ' ');
+            report.append('\n');
+        }
+        report.append("Hitches: ").append(hitchCount).append('\n');
+        for (int i = 0; i < Math.min(maxHitches, hitchCount); i++) {
+            FrameHitch hitch = getHitch(i);
+            report.append("frame ").append(hitch.getFrame()).append(" tick ").append(hitch.getTick())
+                    .append(" sprites ").append(hitch.getSpriteCount()).append(": ");
+            appendMillis(report, hitch.getSectionNanos(FrameSection.Frame));
+            report.append('\n');
+        }
+    }
+
+    private static void appendMillis(StringBuilder text, long nanos) {
+        long hundredths = nanos / 10000;
+        text.append((int) (hundredths / 100), 4, ' ').append('.').append((int) (hundredths % 100), 2, '0').append("ms");
+    }
+
+    /**
+     * Writes the raw samples of the frames in the window, oldest first, durations are in nanoseconds. Sections, that
+     * did not run in a frame, have a duration of 0.
+     */
+    public void writeCsv(FileHandle fileHandle) throws IOException {
+        try (Writer writer = fileHandle.writer(false, "UTF-8")) {
+            writer.write("tick,sprites");
+            for (FrameSection section : SECTIONS)
+                writer.write("," + section.name());
+            writer.write('\n');
+
+            int first = (sampleCount == windowSize) ? nextSample : 0;
+            for (int i = 0; i < sampleCount; i++) {
+                int sample = (first + i) % windowSize;
+                writer.write(Long.toString(tickSamples[sample]));
+                writer.write(',');
+                writer.write(Integer.toString(spriteSamples[sample]));
+                for (int section = 0; section < SECTIONS.length; section++) {
+                    writer.write(',');
+                    writer.write(Long.toString(sectionSamples[section][sample]));
+                }
+                writer.write('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.gempukku.gdx.jam20.profiler;
+
+/**
+ * Parts of a frame measured by {@link FrameProfiler}.
+ */
+public enum FrameSection {
+    Sound("Sound"),
+    Input("Input"),
+    Level_Major("Level (tick)"),
+    Level_Minor("Level (no tick)"),
+    Camera("Camera"),
+    Render("Render"),
+    Frame("Frame");
+
+    private final String text;
+
+    FrameSection(String text) {
+        this.text = text;
+    }
+
+    public String getText() {
+        return text;
+    }
+}
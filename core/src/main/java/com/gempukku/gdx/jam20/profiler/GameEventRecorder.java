@@ -0,0 +1,34 @@
+package com.gempukku.gdx.jam20.profiler;
+
+/**
+ * Records events of the game for an external profiler. Each event is started with a begin method, and committed with
+ * the matching end method, that also sets its values. Begin methods return null if the event is not recorded, in
+ * which case the end methods do nothing.
+ */
+public interface GameEventRecorder {
+    /**
+     * Event being recorded, passed from a begin method to the matching end method.
+     */
+    interface Span {
+    }
+
+    Span beginTick();
+
+    void endTick(Span span, long tick, int spriteCount, int stonesMoved, int foxesMoved);
+
+    Span beginLevelFileLoad();
+
+    void endLevelFileLoad(Span span, String path, String levelName, int width, int height);
+
+    Span beginLevelLoad();
+
+    void endLevelLoad(Span span, String levelName, int width, int height, boolean replay, boolean threadedSimulation);
+
+    Span beginVisibleAreaUpdate();
+
+    void endVisibleAreaUpdate(Span span, int spritesSpawned, int spritesDespawned, int spriteCount);
+
+    Span beginSoundAssetLoad();
+
+    void endSoundAssetLoad(Span span, int loadedAssets, int queuedAssets);
+}
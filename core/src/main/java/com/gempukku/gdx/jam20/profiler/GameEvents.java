@@ -0,0 +1,78 @@
+package com.gempukku.gdx.jam20.profiler;
+
+/**
+ * Provides the recorder of the game events. Events are recorded into Java Flight Recorder, if the runtime has it,
+ * otherwise they are ignored.
+ * <p>
+ * Classes of Java Flight Recorder are only referenced from the {@code jfr} package, which is loaded by name, so that the
+ * game still runs on a Java 8 runtime without it.
+ */
+public final class GameEvents {
+    private static final String FLIGHT_RECORDER_CLASS = "jdk.jfr.FlightRecorder";
+    private static final String RECORDER_CLASS = "com.gempukku.gdx.jam20.profiler.jfr.FlightRecorderEventRecorder";
+
+    private static final GameEventRecorder RECORDER = createRecorder();
+
+    private GameEvents() {
+    }
+
+    public static GameEventRecorder getRecorder() {
+        return RECORDER;
+    }
+
+    private static GameEventRecorder createRecorder() {
+        try {
+            Class.forName(FLIGHT_RECORDER_CLASS);
+            return (GameEventRecorder) Class.forName(RECORDER_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError exp) {
+            return new NoOpEventRecorder();
+        }
+    }
+
+    private static class NoOpEventRecorder implements GameEventRecorder {
+        @Override
+        public Span beginTick() {
+            return null;
+        }
+
+        @Override
+        public void endTick(Span span, long tick, int spriteCount, int stonesMoved, int foxesMoved) {
+        }
+
+        @Override
+        public Span beginLevelFileLoad() {
+            return null;
+        }
+
+        @Override
+        public void endLevelFileLoad(Span span, String path, String levelName, int width, int height) {
+        }
+
+        @Override
+        public Span beginLevelLoad() {
+            return null;
+        }
+
+        @Override
+        public void endLevelLoad(Span span, String levelName, int width, int height, boolean replay, boolean threadedSimulation) {
+        }
+
+        @Override
+        public Span beginVisibleAreaUpdate() {
+            return null;
+        }
+
+        @Override
+        public void endVisibleAreaUpdate(Span span, int spritesSpawned, int spritesDespawned, int spriteCount) {
+        }
+
+        @Override
+        public Span beginSoundAssetLoad() {
+            return null;
+        }
+
+        @Override
+        public void endSoundAssetLoad(Span span, int loadedAssets, int queuedAssets) {
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.gempukku.gdx.jam20.profiler;
+
+/**
+ * Histogram of durations with logarithmic buckets, four buckets for each power of two of microseconds. Samples are
+ * both added and removed, so it can follow a rolling window of samples. Percentiles are reported as the upper bound of
+ * the bucket, so they are at most 25% above the actual value.
+ */
+public class RollingHistogram {
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = 32 * SUB_BUCKETS;
+
+    private final int[] counts = new int[BUCKET_COUNT];
+    private int size;
+
+    public void add(long nanos) {
+        counts[getBucket(nanos)]++;
+        size++;
+    }
+
+    public void remove(long nanos) {
+        counts[getBucket(nanos)]--;
+        size--;
+    }
+
+    public void clear() {
+        for (int i = 0; i < BUCKET_COUNT; i++)
+            counts[i] = 0;
+        size = 0;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the duration in nanoseconds, that the given fraction of samples does not exceed.
+     */
+    public long getPercentile(float fraction) {
+        if (size == 0)
+            return 0;
+        int target = Math.max(1, (int) Math.ceil(fraction * size));
+        int count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += counts[i];
+            if (count >= target)
+                return getBucketUpperBound(i) * 1000L;
+        }
+        return getBucketUpperBound(BUCKET_COUNT - 1) * 1000L;
+    }
+
+    private static int getBucket(long nanos) {
+        long micros = nanos / 1000;
+        if (micros < SUB_BUCKETS)
+            return (int) Math.max(0, micros);
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) (micros >> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return Math.min(BUCKET_COUNT - 1, (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket);
+    }
+
+    // In microseconds
+    private static long getBucketUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket + 1;
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = bucket % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS);
+    }
+}
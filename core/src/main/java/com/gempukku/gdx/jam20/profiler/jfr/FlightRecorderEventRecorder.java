@@ -0,0 +1,134 @@
+package com.gempukku.gdx.jam20.profiler.jfr;
+
+import com.gempukku.gdx.jam20.profiler.GameEventRecorder;
+import jdk.jfr.EventType;
+
+/**
+ * Records the game events into Java Flight Recorder. Events are only created, while their type is enabled in
+ * a running recording, otherwise beginning an event is a single check.
+ */
+public class FlightRecorderEventRecorder implements GameEventRecorder {
+    private final EventType tickType = EventType.getEventType(TickEvent.class);
+    private final EventType levelFileLoadType = EventType.getEventType(LevelFileLoadEvent.class);
+    private final EventType levelLoadType = EventType.getEventType(LevelLoadEvent.class);
+    private final EventType visibleAreaUpdateType = EventType.getEventType(VisibleAreaUpdateEvent.class);
+    private final EventType soundAssetLoadType = EventType.getEventType(SoundAssetLoadEvent.class);
+
+    @Override
+    public Span beginTick() {
+        if (!tickType.isEnabled())
+            return null;
+        TickEvent event = new TickEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endTick(Span span, long tick, int spriteCount, int stonesMoved, int foxesMoved) {
+        if (span == null)
+            return;
+        TickEvent event = (TickEvent) span;
+        event.end();
+        if (event.shouldCommit()) {
+            event.tick = tick;
+            event.spriteCount = spriteCount;
+            event.stonesMoved = stonesMoved;
+            event.foxesMoved = foxesMoved;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Span beginLevelFileLoad() {
+        if (!levelFileLoadType.isEnabled())
+            return null;
+        LevelFileLoadEvent event = new LevelFileLoadEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endLevelFileLoad(Span span, String path, String levelName, int width, int height) {
+        if (span == null)
+            return;
+        LevelFileLoadEvent event = (LevelFileLoadEvent) span;
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = path;
+            event.levelName = levelName;
+            event.width = width;
+            event.height = height;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Span beginLevelLoad() {
+        if (!levelLoadType.isEnabled())
+            return null;
+        LevelLoadEvent event = new LevelLoadEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endLevelLoad(Span span, String levelName, int width, int height, boolean replay, boolean threadedSimulation) {
+        if (span == null)
+            return;
+        LevelLoadEvent event = (LevelLoadEvent) span;
+        event.end();
+        if (event.shouldCommit()) {
+            event.levelName = levelName;
+            event.width = width;
+            event.height = height;
+            event.replay = replay;
+            event.threadedSimulation = threadedSimulation;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Span beginVisibleAreaUpdate() {
+        if (!visibleAreaUpdateType.isEnabled())
+            return null;
+        VisibleAreaUpdateEvent event = new VisibleAreaUpdateEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endVisibleAreaUpdate(Span span, int spritesSpawned, int spritesDespawned, int spriteCount) {
+        if (span == null)
+            return;
+        VisibleAreaUpdateEvent event = (VisibleAreaUpdateEvent) span;
+        event.end();
+        if (event.shouldCommit()) {
+            event.spritesSpawned = spritesSpawned;
+            event.spritesDespawned = spritesDespawned;
+            event.spriteCount = spriteCount;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Span beginSoundAssetLoad() {
+        if (!soundAssetLoadType.isEnabled())
+            return null;
+        SoundAssetLoadEvent event = new SoundAssetLoadEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endSoundAssetLoad(Span span, int loadedAssets, int queuedAssets) {
+        if (span == null)
+            return;
+        SoundAssetLoadEvent event = (SoundAssetLoadEvent) span;
+        event.end();
+        if (event.shouldCommit()) {
+            event.loadedAssets = loadedAssets;
+            event.queuedAssets = queuedAssets;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.gempukku.gdx.jam20.profiler.jfr;
+
+import com.gempukku.gdx.jam20.profiler.GameEventRecorder;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.gempukku.gdx.jam20.LevelFileLoad")
+@Label("Level File Load")
+@Description("Level read and parsed from a file")
+@Category({"Gdx Jam 20", "Level"})
+class LevelFileLoadEvent extends jdk.jfr.Event implements GameEventRecorder.Span {
+    @Label("Path")
+    String path;
+
+    @Label("Level Name")
+    String levelName;
+
+    @Label("Width")
+    int width;
+
+    @Label("Height")
+    int height;
+}
@@ -0,0 +1,28 @@
+package com.gempukku.gdx.jam20.profiler.jfr;
+
+import com.gempukku.gdx.jam20.profiler.GameEventRecorder;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.gempukku.gdx.jam20.LevelLoad")
+@Label("Level Load")
+@Description("Level loaded into the level system, sprites are spawned in the following Visible Area Update")
+@Category({"Gdx Jam 20", "Level"})
+class LevelLoadEvent extends jdk.jfr.Event implements GameEventRecorder.Span {
+    @Label("Level Name")
+    String levelName;
+
+    @Label("Width")
+    int width;
+
+    @Label("Height")
+    int height;
+
+    @Label("Replay")
+    boolean replay;
+
+    @Label("Threaded Simulation")
+    boolean threadedSimulation;
+}
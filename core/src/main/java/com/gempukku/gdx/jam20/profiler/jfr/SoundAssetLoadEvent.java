@@ -0,0 +1,21 @@
+package com.gempukku.gdx.jam20.profiler.jfr;
+
+import com.gempukku.gdx.jam20.profiler.GameEventRecorder;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.gempukku.gdx.jam20.SoundAssetLoad")
+@Label("Sound Asset Load")
+@Description("Update of the asset manager of the sound system, while it has assets to load")
+@Category({"Gdx Jam 20", "Assets"})
+@StackTrace(false)
+class SoundAssetLoadEvent extends jdk.jfr.Event implements GameEventRecorder.Span {
+    @Label("Loaded Assets")
+    int loadedAssets;
+
+    @Label("Queued Assets")
+    int queuedAssets;
+}
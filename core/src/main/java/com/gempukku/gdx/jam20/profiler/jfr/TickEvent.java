@@ -0,0 +1,28 @@
+package com.gempukku.gdx.jam20.profiler.jfr;
+
+import com.gempukku.gdx.jam20.profiler.GameEventRecorder;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.gempukku.gdx.jam20.Tick")
+@Label("Major Tick")
+@Description("Major tick of the level simulation")
+@Category({"Gdx Jam 20", "Level"})
+@StackTrace(false)
+class TickEvent extends jdk.jfr.Event implements GameEventRecorder.Span {
+    @Label("Tick")
+    long tick;
+
+    @Label("Sprite Count")
+    @Description("Number of sprites of the level, published by the render thread if the simulation runs on its own thread")
+    int spriteCount;
+
+    @Label("Stones Moved")
+    int stonesMoved;
+
+    @Label("Foxes Moved")
+    int foxesMoved;
+}
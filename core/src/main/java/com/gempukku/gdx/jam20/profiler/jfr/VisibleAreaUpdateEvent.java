@@ -0,0 +1,24 @@
+package com.gempukku.gdx.jam20.profiler.jfr;
+
+import com.gempukku.gdx.jam20.profiler.GameEventRecorder;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.gempukku.gdx.jam20.VisibleAreaUpdate")
+@Label("Visible Area Update")
+@Description("Sprites spawned and despawned, when the camera view gets outside of the spawned area")
+@Category({"Gdx Jam 20", "Level"})
+@StackTrace(false)
+class VisibleAreaUpdateEvent extends jdk.jfr.Event implements GameEventRecorder.Span {
+    @Label("Sprites Spawned")
+    int spritesSpawned;
+
+    @Label("Sprites Despawned")
+    int spritesDespawned;
+
+    @Label("Sprite Count")
+    int spriteCount;
+}
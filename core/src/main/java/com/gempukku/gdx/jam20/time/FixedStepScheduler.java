@@ -0,0 +1,162 @@
+package com.gempukku.gdx.jam20.time;
+
+/**
+ * Schedules ticks at a fixed rate independent of the frame rate. Elapsed time is accumulated in nanoseconds, so it
+ * does not lose precision over long levels. First tick is due immediately, the following ones every step.
+ * <p>
+ * If more ticks are due in a single frame than the catch-up budget allows, the remaining time is dropped, so that a
+ * long hitch does not cause a burst of ticks.
+ * <p>
+ * Time can run faster or slower than the real time by the speed multiplier. Times passed in and returned are in the
+ * scheduler time, unless they are explicitly stated to be real time. The catch-up budget grows with the speed, so that
+ * the ticks keep up with the speed.
+ */
+public class FixedStepScheduler {
+    private static final double NANOS_PER_SECOND = 1000000000d;
+
+    private long stepNanos;
+    private final int maxCatchUpTicks;
+    private float speed = 1f;
+    private long elapsedNanos;
+    private long tickCount;
+
+    public FixedStepScheduler(float stepDuration, int maxCatchUpTicks) {
+        this.stepNanos = Math.round(stepDuration * NANOS_PER_SECOND);
+        this.maxCatchUpTicks = maxCatchUpTicks;
+    }
+
+    private FixedStepScheduler(long stepNanos, int maxCatchUpTicks) {
+        this.stepNanos = stepNanos;
+        this.maxCatchUpTicks = maxCatchUpTicks;
+    }
+
+    /**
+     * Creates a scheduler with the same step and catch-up budget, starting from zero.
+     */
+    public FixedStepScheduler createCopy() {
+        return new FixedStepScheduler(stepNanos, maxCatchUpTicks);
+    }
+
+    /**
+     * Changes the number of ticks per second, the scheduler has to be reset afterwards.
+     */
+    public void setTickRate(float ticksPerSecond) {
+        setStepNanos(Math.round(NANOS_PER_SECOND / ticksPerSecond));
+    }
+
+    /**
+     * Changes the duration of a step, the scheduler has to be reset afterwards.
+     */
+    public void setStepNanos(long stepNanos) {
+        this.stepNanos = stepNanos;
+    }
+
+    /**
+     * Sets the speed multiplier of the time, 1 is the real time.
+     */
+    public void setSpeed(float speed) {
+        this.speed = speed;
+    }
+
+    public float getSpeed() {
+        return speed;
+    }
+
+    public void reset() {
+        elapsedNanos = 0;
+        tickCount = 0;
+    }
+
+    /**
+     * Advances the time by the frame delta.
+     *
+     * @return number of ticks, that should be processed in this frame
+     */
+    public int advance(float delta) {
+        return advanceNanos(Math.round(delta * NANOS_PER_SECOND));
+    }
+
+    /**
+     * Advances the time by the number of nanoseconds of real time.
+     *
+     * @return number of ticks, that should be processed
+     */
+    public int advanceNanos(long deltaNanos) {
+        elapsedNanos += Math.round(deltaNanos * (double) speed);
+        int catchUpTicks = Math.max(maxCatchUpTicks, (int) Math.ceil(maxCatchUpTicks * speed));
+        long ticksDue = elapsedNanos / stepNanos + 1 - tickCount;
+        if (ticksDue > catchUpTicks) {
+            elapsedNanos -= (ticksDue - catchUpTicks) * stepNanos;
+            ticksDue = catchUpTicks;
+        }
+        tickCount += ticksDue;
+        return (int) ticksDue;
+    }
+
+    /**
+     * Advances the time straight to the time of the next tick, regardless of how much real time has passed.
+     */
+    public void advanceToNextTick() {
+        elapsedNanos = Math.max(elapsedNanos, tickCount * stepNanos);
+        tickCount++;
+    }
+
+    /**
+     * Makes the next tick due now, as if it was due the number of nanoseconds of real time ago (at most a step), the
+     * following ticks are due a step apart from it. The time skips forward to the tick, so it stays in step with
+     * the ticks. Should only be called, when no tick is due.
+     */
+    public void rephase(long nanosAgo) {
+        long sinceTick = Math.max(0, Math.min(Math.round(nanosAgo * (double) speed), stepNanos - 1));
+        elapsedNanos = Math.max(elapsedNanos, tickCount * stepNanos + sinceTick);
+        tickCount++;
+    }
+
+    public long getStepNanos() {
+        return stepNanos;
+    }
+
+    /**
+     * Returns the duration of a step in the real time, at the current speed.
+     */
+    public long getRealStepNanos() {
+        return Math.round(stepNanos / (double) speed);
+    }
+
+    /**
+     * Returns the number of nanoseconds of real time until the next tick is due.
+     */
+    public long getNanosToNextTick() {
+        return Math.round((tickCount * stepNanos - elapsedNanos) / (double) speed);
+    }
+
+    /**
+     * Returns the number of ticks scheduled so far.
+     */
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * Returns the elapsed time in seconds, not including the time dropped when catching up.
+     */
+    public double getTime() {
+        return elapsedNanos / NANOS_PER_SECOND;
+    }
+
+    /**
+     * Returns the time in seconds, when the tick is due.
+     */
+    public double getTickTime(long tick) {
+        return tick * stepNanos / NANOS_PER_SECOND;
+    }
+
+    /**
+     * Returns the progress from the last tick towards the next one, from 0 to 1.
+     */
+    public float getAlpha() {
+        if (tickCount == 0)
+            return 0f;
+        return (float) (elapsedNanos - (tickCount - 1) * stepNanos) / stepNanos;
+    }
+}
@@ -0,0 +1,56 @@
+package com.gempukku.gdx.jam20.time;
+
+/**
+ * Measures the number of ticks processed per second of real time. The rate is recalculated once per interval, from
+ * the ticks processed during it. When the tick number goes back, the level was restarted, and the measurement starts
+ * again.
+ */
+public class TickRateMeter {
+    private final float interval;
+    private long lastTick = -1;
+    private long intervalTicks;
+    private float intervalTime;
+    private float tickRate;
+
+    public TickRateMeter(float interval) {
+        this.interval = interval;
+    }
+
+    public void reset() {
+        lastTick = -1;
+        intervalTicks = 0;
+        intervalTime = 0f;
+        tickRate = 0f;
+    }
+
+    /**
+     * Updates the meter with the number of the last processed tick.
+     *
+     * @param tick  number of the last tick of the level
+     * @param delta real time since the last update, in seconds
+     */
+    public void update(long tick, float delta) {
+        if (lastTick < 0 || tick < lastTick) {
+            lastTick = tick;
+            intervalTicks = 0;
+            intervalTime = 0f;
+            return;
+        }
+
+        intervalTicks += tick - lastTick;
+        intervalTime += delta;
+        lastTick = tick;
+        if (intervalTime >= interval) {
+            tickRate = intervalTicks / intervalTime;
+            intervalTicks = 0;
+            intervalTime = 0f;
+        }
+    }
+
+    /**
+     * Returns ticks per second measured during the last complete interval.
+     */
+    public float getTickRate() {
+        return tickRate;
+    }
+}
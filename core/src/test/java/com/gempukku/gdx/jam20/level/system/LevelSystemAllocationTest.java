@@ -0,0 +1,163 @@
+package com.gempukku.gdx.jam20.level.system;
+
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.gempukku.gdx.jam20.level.GameLevel;
+import com.gempukku.gdx.jam20.time.FixedStepScheduler;
+import com.gempukku.libgdx.graph.plugin.sprites.GraphSprites;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that a frame of a running level, including the HUD texts, does not allocate once the level is warmed up.
+ */
+public class LevelSystemAllocationTest {
+    private static final float FRAME_DELTA = 1f / 60f;
+    private static final int WARM_UP_FRAMES = 3000;
+    private static final int MEASURED_FRAMES = 600;
+
+    // Player is walled in, so the level keeps running without input, while the fox keeps walking around in its own
+    // part of the level, out of the view of the camera
+    private static final String LEVEL_DATA = "PW OOO         W                \n"
+            + "WWDDDDD        W                \n"
+            + "               W    F           \n"
+            + "               W       WWW      \n"
+            + "               W       WWW      \n"
+            + "               W                \n"
+            + "G              W              DX";
+
+    private static final Map<Class<?>, Object> PRIMITIVE_DEFAULTS = new HashMap<>();
+    private static final Map<Class<?>, Object> NO_OP_IMPLEMENTATIONS = new HashMap<>();
+    private static int noOpCalls;
+
+    static {
+        PRIMITIVE_DEFAULTS.put(boolean.class, false);
+        PRIMITIVE_DEFAULTS.put(byte.class, (byte) 0);
+        PRIMITIVE_DEFAULTS.put(short.class, (short) 0);
+        PRIMITIVE_DEFAULTS.put(char.class, (char) 0);
+        PRIMITIVE_DEFAULTS.put(int.class, 0);
+        PRIMITIVE_DEFAULTS.put(long.class, 0L);
+        PRIMITIVE_DEFAULTS.put(float.class, 0f);
+        PRIMITIVE_DEFAULTS.put(double.class, 0d);
+    }
+
+    private com.sun.management.ThreadMXBean threadMXBean;
+    private FixedStepScheduler tickScheduler;
+    private LevelSystem levelSystem;
+    private LevelHudText hudText;
+    private OrthographicCamera camera;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        tickScheduler = new FixedStepScheduler(1f / GameLevel.DEFAULT_TICKS_PER_SECOND, 5);
+        SoundSystem soundSystem = new SoundSystem() {
+            @Override
+            public void playSound(String name) {
+            }
+        };
+        levelSystem = new LevelSystem(tickScheduler, new InputSystem(), soundSystem, createNoOp(GraphSprites.class));
+        hudText = new LevelHudText();
+        camera = new OrthographicCamera();
+        // Only the walled in player and the stones next to it are visible
+        camera.viewportWidth = 8f;
+        camera.viewportHeight = 4f;
+    }
+
+    @Test
+    public void frameDoesNotAllocate() {
+        GameLevel gameLevel = new GameLevel("Allocation test", 1, 600, GameLevel.createUnvalidatedLevelData(LEVEL_DATA));
+        levelSystem.loadLevel(gameLevel, new TextureAtlas());
+        tickScheduler.reset();
+
+        for (int i = 0; i < WARM_UP_FRAMES; i++)
+            updateFrame();
+
+        long ticksBefore = levelSystem.getTickCount();
+        int foxesMoved = 0;
+        int noOpCallsBefore = noOpCalls;
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_FRAMES; i++) {
+            long tickCount = levelSystem.getTickCount();
+            updateFrame();
+            if (levelSystem.getTickCount() != tickCount)
+                foxesMoved += levelSystem.getSimulation().getFoxesMoved();
+        }
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        assertNull("Level finished during the test", levelSystem.getFinishReason());
+        assertTrue("No ticks processed", levelSystem.getTickCount() > ticksBefore);
+        assertTrue("Fox did not move", foxesMoved > 0);
+        // Calls to the no-op sprites box their arguments, the game does not make any calls with nothing in view
+        assertEquals("Calls to the sprites in " + MEASURED_FRAMES + " frames", 0, noOpCalls - noOpCallsBefore);
+        assertEquals("Bytes allocated in " + MEASURED_FRAMES + " frames", 0L, allocated);
+    }
+
+    private void updateFrame() {
+        levelSystem.update(tickScheduler.advance(FRAME_DELTA));
+        // Texts are rebuilt every frame, as the player does not collect anything during the test
+        hudText.reset();
+        hudText.updateCollectables(levelSystem);
+        hudText.updateRemainingTime(levelSystem);
+        camera.position.set(levelSystem.getSimulation().getPlayerX(), levelSystem.getSimulation().getPlayerY(), 0f);
+        levelSystem.updateVisibleArea(camera);
+    }
+
+    /**
+     * Creates an implementation of the interface that does nothing, so that the sprites can be created, tagged and
+     * updated without a renderer. Methods returning an interface return a no-op implementation of it, other methods
+     * return the default value of their type.
+     * <p>
+     * Calls are counted in {@link #noOpCalls}, as a call allocates the array of its arguments.
+     */
+    private static <T> T createNoOp(Class<T> type) {
+        Object implementation = NO_OP_IMPLEMENTATIONS.get(type);
+        if (implementation == null) {
+            Map<Method, Object> results = new HashMap<>();
+            implementation = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                    (proxy, method, args) -> {
+                        if (method.getDeclaringClass() == Object.class)
+                            return invokeObjectMethod(type, proxy, method, args);
+                        noOpCalls++;
+                        return results.get(method);
+                    });
+            // Registered before resolving the results, as an interface can return itself
+            NO_OP_IMPLEMENTATIONS.put(type, implementation);
+            for (Method method : type.getMethods()) {
+                Class<?> returnType = method.getReturnType();
+                if (returnType.isPrimitive())
+                    results.put(method, PRIMITIVE_DEFAULTS.get(returnType));
+                else if (returnType.isInterface())
+                    results.put(method, createNoOp(returnType));
+            }
+        }
+        return type.cast(implementation);
+    }
+
+    private static Object invokeObjectMethod(Class<?> type, Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return "No-op " + type.getName();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.gempukku.gdx.jam20.level.system;
+
+import com.gempukku.gdx.jam20.level.LevelObject;
+import com.gempukku.gdx.jam20.level.simulation.FinishReason;
+import com.gempukku.gdx.jam20.level.simulation.LevelState;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StaticTileMeshBuilderTest {
+    private static final int CHUNK_SIZE = 16;
+    private static final float DELTA = 0.0001f;
+
+    private StaticTileMeshBuilder meshBuilder;
+    private float[] vertices;
+
+    @Before
+    public void setUp() {
+        meshBuilder = new StaticTileMeshBuilder();
+        for (LevelObject levelObject : LevelObject.values())
+            meshBuilder.setRegion(levelObject, 0.25f, 0.5f, 0.75f, 1f);
+        vertices = new float[CHUNK_SIZE * CHUNK_SIZE * StaticTileMeshBuilder.FLOATS_PER_QUAD];
+    }
+
+    @Test
+    public void onlyStaticTilesGetQuads() {
+        StubLevelState levelState = new StubLevelState(4, 2, LevelObject.Air);
+        levelState.set(0, 0, LevelObject.Wall);
+        levelState.set(1, 0, LevelObject.Stone);
+        levelState.set(2, 0, LevelObject.Dirt);
+        levelState.set(3, 0, LevelObject.Grub);
+        levelState.set(0, 1, LevelObject.Player);
+        levelState.set(1, 1, LevelObject.Exit_Inactive);
+        levelState.set(2, 1, LevelObject.Fox);
+        levelState.set(3, 1, LevelObject.Exit_Active);
+
+        int quadCount = meshBuilder.build(levelState, 0, 0, 4, 2, vertices);
+
+        assertEquals(3, quadCount);
+        // Bottom left corners of the quads, in the order of the cells
+        assertVertexPosition(0, 0, 0);
+        assertVertexPosition(StaticTileMeshBuilder.VERTICES_PER_QUAD, 2, 0);
+        assertVertexPosition(2 * StaticTileMeshBuilder.VERTICES_PER_QUAD, 1, 1);
+    }
+
+    @Test
+    public void quadCoversCellCounterClockwiseFromBottomLeft() {
+        StubLevelState levelState = new StubLevelState(4, 3, LevelObject.Air);
+        levelState.set(2, 1, LevelObject.Wall);
+        meshBuilder.setRegion(LevelObject.Wall, 0.1f, 0.2f, 0.3f, 0.4f);
+
+        int quadCount = meshBuilder.build(levelState, 0, 0, 4, 3, vertices);
+
+        assertEquals(1, quadCount);
+        // Top edge of the cell gets v, the top edge of the region
+        float[] expected = {
+                2, 1, 0.1f, 0.4f,
+                3, 1, 0.3f, 0.4f,
+                3, 2, 0.3f, 0.2f,
+                2, 2, 0.1f, 0.2f};
+        assertArrayEquals(expected, Arrays.copyOf(vertices, StaticTileMeshBuilder.FLOATS_PER_QUAD), DELTA);
+    }
+
+    @Test
+    public void indicesFormTwoCounterClockwiseTrianglesPerQuad() {
+        short[] indices = new short[2 * StaticTileMeshBuilder.INDICES_PER_QUAD];
+        StaticTileMeshBuilder.fillIndices(indices, 2);
+
+        assertArrayEquals(new short[]{0, 1, 2, 2, 3, 0, 4, 5, 6, 6, 7, 4}, indices);
+
+        StubLevelState levelState = new StubLevelState(1, 1, LevelObject.Wall);
+        meshBuilder.build(levelState, 0, 0, 1, 1, vertices);
+        for (int triangle = 0; triangle < 2; triangle++) {
+            int index = triangle * 3;
+            assertTrue("Triangle " + triangle + " is not counter-clockwise",
+                    getSignedArea(indices[index], indices[index + 1], indices[index + 2]) > 0);
+        }
+    }
+
+    @Test
+    public void edgeChunkIsCutToLevelSize() {
+        // Level is 1 chunk and 4x2 cells of the next one, cells outside of the level can not be read
+        StubLevelState levelState = new StubLevelState(CHUNK_SIZE + 4, CHUNK_SIZE + 2, LevelObject.Wall);
+
+        assertEquals(CHUNK_SIZE * CHUNK_SIZE, meshBuilder.buildChunk(levelState, 0, 0, CHUNK_SIZE, vertices));
+        assertEquals(4 * CHUNK_SIZE, meshBuilder.buildChunk(levelState, 1, 0, CHUNK_SIZE, vertices));
+        assertEquals(CHUNK_SIZE * 2, meshBuilder.buildChunk(levelState, 0, 1, CHUNK_SIZE, vertices));
+
+        int quadCount = meshBuilder.buildChunk(levelState, 1, 1, CHUNK_SIZE, vertices);
+        assertEquals(4 * 2, quadCount);
+        assertVertexPosition(0, CHUNK_SIZE, CHUNK_SIZE);
+        // Top right corner of the last quad is the top right corner of the level
+        int lastQuad = (quadCount - 1) * StaticTileMeshBuilder.VERTICES_PER_QUAD;
+        assertVertexPosition(lastQuad + 2, CHUNK_SIZE + 4, CHUNK_SIZE + 2);
+    }
+
+    private void assertVertexPosition(int vertex, float x, float y) {
+        int index = vertex * StaticTileMeshBuilder.FLOATS_PER_VERTEX;
+        assertEquals("x of vertex " + vertex, x, vertices[index], DELTA);
+        assertEquals("y of vertex " + vertex, y, vertices[index + 1], DELTA);
+    }
+
+    private float getSignedArea(int vertex1, int vertex2, int vertex3) {
+        int index1 = vertex1 * StaticTileMeshBuilder.FLOATS_PER_VERTEX;
+        int index2 = vertex2 * StaticTileMeshBuilder.FLOATS_PER_VERTEX;
+        int index3 = vertex3 * StaticTileMeshBuilder.FLOATS_PER_VERTEX;
+        return (vertices[index2] - vertices[index1]) * (vertices[index3 + 1] - vertices[index1 + 1])
+                - (vertices[index3] - vertices[index1]) * (vertices[index2 + 1] - vertices[index1 + 1]);
+    }
+
+    private static class StubLevelState implements LevelState {
+        private final int width;
+        private final int height;
+        private final LevelObject[] cells;
+
+        private StubLevelState(int width, int height, LevelObject fill) {
+            this.width = width;
+            this.height = height;
+            this.cells = new LevelObject[width * height];
+            Arrays.fill(cells, fill);
+        }
+
+        private void set(int x, int y, LevelObject levelObject) {
+            cells[y * width + x] = levelObject;
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public LevelObject getObjectAt(int x, int y) {
+            if (x < 0 || y < 0 || x >= width || y >= height)
+                throw new IndexOutOfBoundsException("Cell outside of the level: " + x + ", " + y);
+            return cells[y * width + x];
+        }
+
+        @Override
+        public int getPlayerX() {
+            return 0;
+        }
+
+        @Override
+        public int getPlayerY() {
+            return 0;
+        }
+
+        @Override
+        public int getCollectablesCollected() {
+            return 0;
+        }
+
+        @Override
+        public long getTickCount() {
+            return 0;
+        }
+
+        @Override
+        public FinishReason getFinishReason() {
+            return null;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return false;
+        }
+    }
+}